@@ -1,65 +1,158 @@
 package application;
 
 import java.util.ArrayList;
-import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
 
-import chesslayer.ChessException;
 import chesslayer.ChessMatch;
+import chesslayer.ChessMove;
 import chesslayer.ChessPiece;
 import chesslayer.ChessPosition;
+import chesslayer.Color;
+import chesslayer.MoveResult;
+import chesslayer.Variant;
+import chesslayer.engine.EnginePlayer;
+import chesslayer.engine.Search;
 
 public class Program {
     
     public static void main(String[] args) {
         
+        // Variante opcional pelo nome: java application.Program capablanca
+        // Contra o motor: java application.Program -engine pretas [-ms 2000] [-depth 64] [-noponder]
+        Variant variant = Variant.STANDARD;
+        Color engineColor = null;
+        long moveMillis = 2000;
+        int depth = Search.MAX_PLY;
+        boolean ponder = true;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-engine") && i + 1 < args.length) {
+                String color = args[++i].toLowerCase();
+                engineColor = color.equals("brancas") || color.equals("white") ? Color.WHITE : Color.BLACK;
+            } else if (args[i].equals("-ms") && i + 1 < args.length) {
+                moveMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-depth") && i + 1 < args.length) {
+                depth = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-noponder")) {
+                ponder = false;
+            } else {
+                variant = Variant.byName(args[i]);
+                if (variant == null) {
+                    System.out.println("Variante desconhecida: " + args[i] + " (use standard, capablanca ou gothic)");
+                    return;
+                }
+            }
+        }
+        if (engineColor != null && !variant.isStandard()) {
+            System.out.println("O motor só joga xadrez padrão");
+            return;
+        }
         Scanner sc = new Scanner(System.in);
-        ChessMatch chessMatch = new ChessMatch();
+        ChessMatch chessMatch = new ChessMatch(variant);
         List<ChessPiece> captured = new ArrayList<>();
+        EnginePlayer engine = null;
+        if (engineColor != null) {
+            engine = new EnginePlayer(new Search(), depth, moveMillis);
+            engine.setPonderEnabled(ponder);
+        }
+        String engineInfo = null;
         
         while (!chessMatch.getCheckMate()) {
-            try {
-                UI.clearScreen();
-                UI.printMatch(chessMatch, captured);
-                System.out.println();
-                System.out.print("Origem: ");
-                ChessPosition source = UI.readChessPosition(sc);
-                
-                boolean[][] possibleMoves = chessMatch.possibleMoves(source);
-                UI.clearScreen();
-                UI.printBoard(chessMatch.getPieces(), possibleMoves);
-                
-                System.out.println();
-                System.out.print("Destino: ");
-                ChessPosition target = UI.readChessPosition(sc);
-                
-                ChessPiece capturedPiece = chessMatch.performChessMove(source, target);
-                
-                if (capturedPiece != null) {
-                    captured.add(capturedPiece);
+            if (engine != null && chessMatch.getCurrentPlayer() == engineColor) {
+                engineInfo = playEngineMove(chessMatch, engine, captured);
+                if (engineInfo == null) {
+                    break;
                 }
-                
-                // Promoção de peão
-                if (chessMatch.getPromoted() != null) {
-                    System.out.print("Digite a peça para promoção (B/N/R/Q): ");
-                    String type = sc.nextLine().toUpperCase();
-                    while (!type.equals("B") && !type.equals("N") && !type.equals("R") && !type.equals("Q")) {
-                        System.out.print("Valor inválido! Digite a peça para promoção (B/N/R/Q): ");
-                        type = sc.nextLine().toUpperCase();
-                    }
-                    chessMatch.replacePromotedPiece(type);
+                continue;
+            }
+            UI.clearScreen();
+            UI.printMatch(chessMatch, captured);
+            System.out.println();
+            if (engineInfo != null) {
+                System.out.println(engineInfo);
+            }
+            System.out.print("Origem: ");
+            ChessPosition source = UI.parseChessPosition(sc.nextLine());
+            if (source == null) {
+                printError(sc, MoveResult.INVALID_FORMAT.getMessage(chessMatch.getVariant()));
+                continue;
+            }
+            
+            // Validação por código de resultado: entradas erradas não geram exceções
+            MoveResult result = chessMatch.validateSource(source);
+            if (result != MoveResult.OK) {
+                printError(sc, result.getMessage(chessMatch.getVariant()));
+                continue;
+            }
+            boolean[][] possibleMoves = chessMatch.possibleMoves(source);
+            UI.clearScreen();
+            UI.printBoard(chessMatch.getPieces(), possibleMoves);
+            
+            System.out.println();
+            System.out.print("Destino: ");
+            ChessPosition target = UI.parseChessPosition(sc.nextLine());
+            if (target == null) {
+                printError(sc, MoveResult.INVALID_FORMAT.getMessage(chessMatch.getVariant()));
+                continue;
+            }
+            
+            result = chessMatch.tryChessMove(source, target);
+            if (result != MoveResult.OK) {
+                printError(sc, result.getMessage(chessMatch.getVariant()));
+                continue;
+            }
+            
+            ChessPiece capturedPiece = chessMatch.getLastCapturedPiece();
+            if (capturedPiece != null) {
+                captured.add(capturedPiece);
+            }
+            
+            // Promoção de peão
+            if (chessMatch.getPromoted() != null) {
+                String pieces = variant.getPromotionPieces();
+                String options = String.join("/", pieces.split(""));
+                System.out.print("Digite a peça para promoção (" + options + "): ");
+                String type = sc.nextLine().toUpperCase();
+                while (type.length() != 1 || pieces.indexOf(type.charAt(0)) < 0) {
+                    System.out.print("Valor inválido! Digite a peça para promoção (" + options + "): ");
+                    type = sc.nextLine().toUpperCase();
                 }
-                
-            } catch (ChessException e) {
-                System.out.println(e.getMessage());
-                sc.nextLine();
-            } catch (InputMismatchException e) {
-                System.out.println(e.getMessage());
-                sc.nextLine();
+                chessMatch.replacePromotedPiece(type);
             }
         }
+        if (engine != null) {
+            engine.close();
+        }
         UI.clearScreen();
         UI.printMatch(chessMatch, captured);
+        if (!chessMatch.getCheckMate()) {
+            System.out.println("Empate: o jogador da vez não tem lances legais");
+        }
+    }
+    
+    // Joga o lance do motor e começa o ponder; retorna o resumo do lance, ou null sem lances legais
+    private static String playEngineMove(ChessMatch chessMatch, EnginePlayer engine, List<ChessPiece> captured) {
+        int move = engine.play(chessMatch);
+        if (move < 0) {
+            return null;
+        }
+        chessMatch.tryChessMove(chessMatch.toChessPosition(ChessMove.source(move)), 
+                                chessMatch.toChessPosition(ChessMove.target(move)));
+        if (chessMatch.getLastCapturedPiece() != null) {
+            captured.add(chessMatch.getLastCapturedPiece());
+        }
+        if (chessMatch.getPromoted() != null) {
+            chessMatch.replacePromotedPiece(ChessMove.promotionType(move));
+        }
+        engine.startPondering(chessMatch);
+        List<String> history = chessMatch.getMoveHistory();
+        return "Motor: " + history.get(history.size() - 1) + " (profundidade " + engine.getLastLine().getDepth()
+               + (engine.wasPonderHit() ? ", ponder hit" : "") + ", " + engine.getLastLatencyMillis() + " ms)";
+    }
+    
+    // Mostra o erro e espera ENTER antes de redesenhar o tabuleiro
+    private static void printError(Scanner sc, String message) {
+        System.out.println(message);
+        sc.nextLine();
     }
 }
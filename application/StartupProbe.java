@@ -0,0 +1,30 @@
+package application;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import chesslayer.ChessMatch;
+import chesslayer.PrecomputedTables;
+
+// Mede o tempo até o primeiro lance legal: do início da JVM e da entrada no main.
+// Também é a carga de treino usada por scripts/appcds.sh para gerar o arquivo AppCDS
+public class StartupProbe {
+
+    public static void main(String[] args) {
+        long mainStart = System.nanoTime();
+        ChessMatch match = new ChessMatch();
+        int[] moves = match.legalMoves();
+        long mainMicros = (System.nanoTime() - mainStart) / 1000;
+        Instant firstMove = Instant.now();
+
+        System.out.println("Lances legais: " + moves.length);
+        System.out.println("Tabelas: " + (PrecomputedTables.isLoadedFromResource() ? "recurso" : "calculadas"));
+        System.out.printf("main -> primeiro lance: %.2f ms%n", mainMicros / 1000.0);
+        // A hora de início do processo tem a resolução do relógio do sistema operacional
+        Optional<Instant> jvmStart = ProcessHandle.current().info().startInstant();
+        if (jvmStart.isPresent()) {
+            System.out.println("início da JVM -> primeiro lance: " + Duration.between(jvmStart.get(), firstMove).toMillis() + " ms");
+        }
+    }
+}
@@ -41,14 +41,32 @@ public class UI {
     
     // Lê posição de xadrez digitada pelo usuário
     public static ChessPosition readChessPosition(Scanner sc) {
-        try {
-            String s = sc.nextLine();
-            char column = s.charAt(0);
-            int row = Integer.parseInt(s.substring(1));
-            return new ChessPosition(column, row);
-        } catch (RuntimeException e) {
-            throw new InputMismatchException("Erro ao ler a posição de xadrez. Valores válidos são de a1 a h8.");
+        ChessPosition position = parseChessPosition(sc.nextLine());
+        if (position == null) {
+            throw new InputMismatchException("Erro ao ler a posição de xadrez. Valores válidos são de a1 a p16.");
         }
+        return position;
+    }
+    
+    // Converte o texto digitado (ex: e2, j10) sem lançar exceção; retorna null se for inválido.
+    // A partida confere se a casa existe no seu tabuleiro
+    public static ChessPosition parseChessPosition(String s) {
+        s = s.trim();
+        if (s.length() < 2 || s.length() > 3 || s.charAt(1) == '0') {
+            return null;
+        }
+        char column = s.charAt(0);
+        int row = 0;
+        for (int i = 1; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return null;
+            }
+            row = row * 10 + s.charAt(i) - '0';
+        }
+        if (!ChessPosition.isValid(column, row)) {
+            return null;
+        }
+        return new ChessPosition(column, row);
     }
     
     // Imprime a partida atual
@@ -87,42 +105,39 @@ public class UI {
     }
     
     public static void printBoard(ChessPiece[][] pieces) {
-        System.out.println();
-        printHorizontalLine();
-        for (int i = 0; i < pieces.length; i++) {
-            System.out.print(ANSI_GREEN + (8 - i) + ANSI_RESET + " ");
-            for (int j = 0; j < pieces.length; j++) {
-                System.out.print("| ");
-                printPiece(pieces[i][j], false);
-            }
-            System.out.println("|");
-            printHorizontalLine();
-        }
-        System.out.println(ANSI_GREEN + "    a   b   c   d   e   f   g   h" + ANSI_RESET);
-        System.out.println();
+        printBoard(pieces, null);
     }
     
-    // Imprime tabuleiro com movimentos possíveis destacados
+    // Imprime tabuleiro com movimentos possíveis destacados (qualquer tamanho, até 16x16)
     public static void printBoard(ChessPiece[][] pieces, boolean[][] possibleMoves) {
+        int rows = pieces.length;
+        int columns = pieces[0].length;
+        // Fileiras com dois dígitos alinham as de um dígito com um espaço à esquerda
+        String labelFormat = rows > 9 ? "%2d" : "%d";
+        String margin = rows > 9 ? " " : "";
         System.out.println();
-        printHorizontalLine();
-        for (int i = 0; i < pieces.length; i++) {
-            System.out.print(ANSI_GREEN + (8 - i) + ANSI_RESET + " ");
-            for (int j = 0; j < pieces.length; j++) {
+        printHorizontalLine(columns, margin);
+        for (int i = 0; i < rows; i++) {
+            System.out.print(ANSI_GREEN + String.format(labelFormat, rows - i) + ANSI_RESET + " ");
+            for (int j = 0; j < columns; j++) {
                 System.out.print("| ");
-                printPiece(pieces[i][j], possibleMoves[i][j]);
+                printPiece(pieces[i][j], possibleMoves != null && possibleMoves[i][j]);
             }
             System.out.println("|");
-            printHorizontalLine();
+            printHorizontalLine(columns, margin);
+        }
+        StringBuilder letters = new StringBuilder("  " + margin);
+        for (int j = 0; j < columns; j++) {
+            letters.append("  ").append((char) ('a' + j)).append(' ');
         }
-        System.out.println(ANSI_GREEN + "    a   b   c   d   e   f   g   h" + ANSI_RESET);
+        System.out.println(ANSI_GREEN + letters + ANSI_RESET);
         System.out.println();
     }
     
     // Imprime linha horizontal do tabuleiro
-    private static void printHorizontalLine() {
-        System.out.print("  ");
-        for (int i = 0; i < 8; i++) {
+    private static void printHorizontalLine(int columns, String margin) {
+        System.out.print("  " + margin);
+        for (int i = 0; i < columns; i++) {
             System.out.print("+---");
         }
         System.out.println("+");
@@ -0,0 +1,270 @@
+package application.batch;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import chesslayer.ChessMatch;
+import chesslayer.archive.ArchivedGame;
+import chesslayer.archive.GameArchiveReader;
+import chesslayer.archive.PgnWriter;
+import chesslayer.engine.AnalysisLine;
+import chesslayer.engine.Search;
+
+// Anota as partidas de um arquivo com imprecisões (?!), erros (?) e capivaradas (??) e grava PGN.
+//
+// Pipeline em três etapas ligadas por filas limitadas: a thread chamadora decodifica as partidas,
+// um grupo de workers avalia cada ply com uma busca rasa (uma Search por worker) e uma thread de
+// escrita grava o PGN na ordem do arquivo. As filas cheias e um limite de partidas em trânsito
+// seguram a leitura, então a memória usada não depende do tamanho do arquivo.
+//
+// Uma falha na escrita interrompe a leitura, os workers descartam o que ainda está em trânsito e
+// annotate() relança a falha.
+public class GameAnnotator {
+    
+    public static final String INACCURACY = "$6";
+    public static final String MISTAKE = "$2";
+    public static final String BLUNDER = "$4";
+    
+    // Perda em centipeões a partir da qual o lance é anotado; avaliações de mate contam como ±1000
+    private static final int INACCURACY_LOSS = 50;
+    private static final int MISTAKE_LOSS = 100;
+    private static final int BLUNDER_LOSS = 300;
+    private static final int SCORE_CAP = 1000;
+    
+    private final int depth;
+    private final int workers;
+    private final int queueCapacity;
+    private final StageStats decodeStats = new StageStats("leitura");
+    private final StageStats analyzeStats = new StageStats("análise");
+    private final StageStats writeStats = new StageStats("escrita");
+    private final AtomicInteger plies = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    // IOException ou RuntimeException da thread de escrita
+    private volatile Exception writeError;
+    
+    public GameAnnotator(int depth, int workers, int queueCapacity) {
+        if (depth < 1 || workers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Parâmetros inválidos para o anotador");
+        }
+        this.depth = depth;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+    }
+    
+    // Partida em trânsito entre as etapas; annotations == null indica falha na leitura (game == null)
+    // ou na análise
+    private static class Item {
+        
+        final int index;
+        final ArchivedGame game;
+        ChessMatch match;
+        String[] annotations;
+        
+        Item(int index, ArchivedGame game) {
+            this.index = index;
+            this.game = game;
+        }
+    }
+    
+    private static final Item END = new Item(-1, null);
+    
+    public void annotate(GameArchiveReader reader, PgnWriter out) throws IOException, InterruptedException {
+        BlockingQueue<Item> input = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item> output = new ArrayBlockingQueue<>(queueCapacity);
+        // Limita as partidas lidas e ainda não gravadas, o que inclui as que esperam na reordenação
+        // atrás de uma partida lenta
+        Semaphore inFlight = new Semaphore(2 * queueCapacity + workers);
+        
+        Thread[] pool = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            pool[i] = new Thread(() -> work(input, output), "annotator-" + i);
+            pool[i].start();
+        }
+        Thread writer = new Thread(() -> write(output, out, inFlight), "annotator-writer");
+        writer.start();
+        
+        try {
+            for (int n = 0; n < reader.getGameCount() && writeError == null; n++) {
+                long start = System.nanoTime();
+                ArchivedGame game;
+                try {
+                    game = reader.game(n);
+                } catch (RuntimeException e) {
+                    // O item segue vazio pelas etapas para o escritor não esperar pela partida n
+                    System.err.println("Partida " + n + " ignorada: " + e.getMessage());
+                    failures.incrementAndGet();
+                    game = null;
+                }
+                decodeStats.record(System.nanoTime() - start);
+                inFlight.acquire();
+                input.put(new Item(n, game));
+            }
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                input.put(END);
+            }
+            for (Thread t : pool) {
+                t.join();
+            }
+            writer.join();
+        }
+        if (writeError instanceof IOException) {
+            throw (IOException) writeError;
+        }
+        if (writeError != null) {
+            throw (RuntimeException) writeError;
+        }
+    }
+    
+    private void work(BlockingQueue<Item> input, BlockingQueue<Item> output) {
+        Search search = new Search();
+        try {
+            while (true) {
+                Item item = input.take();
+                if (item == END) {
+                    output.put(END);
+                    return;
+                }
+                if (writeError != null || item.game == null) {
+                    // A escrita falhou (o resultado seria descartado) ou a partida não pôde ser lida
+                    output.put(item);
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    item.match = new ChessMatch();
+                    item.annotations = annotate(item.game.getMoves(), item.match, search);
+                    plies.addAndGet(item.game.getMoves().length);
+                } catch (RuntimeException e) {
+                    System.err.println("Partida " + item.index + " ignorada: " + e.getMessage());
+                    failures.incrementAndGet();
+                    item.annotations = null;
+                }
+                analyzeStats.record(System.nanoTime() - start);
+                output.put(item);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Grava na ordem do arquivo; as partidas adiantadas esperam num buffer limitado por inFlight.
+    // Após um erro de escrita continua esvaziando a fila para não travar os workers.
+    private void write(BlockingQueue<Item> output, PgnWriter out, Semaphore inFlight) {
+        Map<Integer, Item> pending = new TreeMap<>();
+        int next = 0;
+        int finished = 0;
+        try {
+            while (finished < workers) {
+                Item item = output.take();
+                if (item == END) {
+                    finished++;
+                    continue;
+                }
+                pending.put(item.index, item);
+                while (pending.containsKey(next)) {
+                    Item ready = pending.remove(next++);
+                    inFlight.release();
+                    if (ready.annotations == null || writeError != null) {
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        out.write(ready.game.getTags(), ready.match, ready.annotations);
+                    } catch (IOException | RuntimeException e) {
+                        writeError = e;
+                    }
+                    writeStats.record(System.nanoTime() - start);
+                }
+            }
+            if (writeError == null) {
+                out.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            writeError = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Avalia cada posição uma vez: a perda do lance i é a avaliação antes dele (melhor lance)
+    // menos a avaliação depois, ambas do ponto de vista de quem jogou. Aplica os lances em match.
+    public String[] annotate(int[] moves, ChessMatch match, Search search) {
+        int[] scores = new int[moves.length + 1];
+        int[] best = new int[moves.length + 1];
+        String[] bestSan = new String[moves.length];
+        search.setPosition(match);
+        for (int ply = 0; ply <= moves.length; ply++) {
+            AnalysisLine[] lines = search.searchRoot(depth, 1);
+            if (lines.length == 0) {
+                scores[ply] = match.getCheck() ? -SCORE_CAP : 0;
+            } else {
+                scores[ply] = cap(lines[0].getScore());
+                best[ply] = lines[0].getMove();
+            }
+            if (ply < moves.length) {
+                bestSan[ply] = lines.length == 0 ? null : match.notation(best[ply]);
+                match.applyMove(moves[ply]);
+                search.advance(moves[ply]);
+            }
+        }
+        
+        String[] annotations = new String[moves.length];
+        for (int ply = 0; ply < moves.length; ply++) {
+            if (moves[ply] == best[ply]) {
+                continue;
+            }
+            int loss = scores[ply] + scores[ply + 1];
+            String nag = loss >= BLUNDER_LOSS ? BLUNDER : loss >= MISTAKE_LOSS ? MISTAKE 
+                       : loss >= INACCURACY_LOSS ? INACCURACY : null;
+            if (nag != null) {
+                // Avaliação após o lance, do ponto de vista das brancas
+                int white = (ply + 1) % 2 == 0 ? scores[ply + 1] : -scores[ply + 1];
+                annotations[ply] = String.format(Locale.ROOT, "%s {%+.2f, melhor: %s}", nag, white / 100.0, bestSan[ply]);
+            }
+        }
+        return annotations;
+    }
+    
+    private static int cap(int score) {
+        return Math.max(-SCORE_CAP, Math.min(SCORE_CAP, score));
+    }
+    
+    public void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long games = analyzeStats.getCount();
+        System.out.printf(Locale.ROOT, "%d partidas (%d falhas), %d plies em %.1f s: %.1f partidas/s, %.0f plies/s%n",
+                          games, failures.get(), plies.get(), seconds, games / seconds, plies.get() / seconds);
+        System.out.println(decodeStats);
+        System.out.println(analyzeStats);
+        System.out.println(writeStats);
+    }
+    
+    // Uso: GameAnnotator <arquivo> <saida.pgn> [workers] [profundidade] [fila]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Uso: GameAnnotator <arquivo> <saida.pgn> [workers] [profundidade] [fila]");
+            System.exit(2);
+        }
+        Path archive = Paths.get(args[0]);
+        Path pgn = Paths.get(args[1]);
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        int queue = args.length > 4 ? Integer.parseInt(args[4]) : workers * 4;
+        
+        GameAnnotator annotator = new GameAnnotator(depth, workers, queue);
+        long start = System.nanoTime();
+        try (GameArchiveReader reader = new GameArchiveReader(archive); PgnWriter out = new PgnWriter(pgn)) {
+            annotator.annotate(reader, out);
+        }
+        annotator.printReport(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,88 @@
+package application.batch;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import chesslayer.ChessMatch;
+import chesslayer.MoveResult;
+import chesslayer.archive.GameArchiveReader;
+import chesslayer.archive.MoveStats;
+import chesslayer.archive.OpeningExplorer;
+import chesslayer.archive.OpeningExplorerBuilder;
+
+// Monta e consulta o explorador de aberturas.
+//   build <diretório> <arquivo>... [-maxply N] [-buffer N]: soma as partidas dos arquivos ao explorador
+//   query <diretório> [lances em UCI...]: estatísticas da posição após os lances
+public class OpeningExplorerTool {
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("build")) {
+            build(args);
+        } else if (args.length >= 2 && args[0].equals("query")) {
+            query(Paths.get(args[1]), Arrays.copyOfRange(args, 2, args.length));
+        } else {
+            System.err.println("Uso: OpeningExplorerTool build <diretório> <arquivo>... [-maxply N] [-buffer N]");
+            System.err.println("     OpeningExplorerTool query <diretório> [lances em UCI...]");
+            System.exit(2);
+        }
+    }
+    
+    private static void build(String[] args) throws IOException {
+        Path directory = Paths.get(args[1]);
+        List<Path> archives = new ArrayList<>();
+        int maxPly = OpeningExplorerBuilder.DEFAULT_MAX_PLY;
+        int buffer = 1 << 22;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-maxply") && i + 1 < args.length) {
+                maxPly = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-buffer") && i + 1 < args.length) {
+                buffer = Integer.parseInt(args[++i]);
+            } else {
+                archives.add(Paths.get(args[i]));
+            }
+        }
+        long start = System.nanoTime();
+        long games;
+        long skipped;
+        long invalid;
+        try (OpeningExplorerBuilder builder = new OpeningExplorerBuilder(directory, maxPly, buffer)) {
+            for (Path path : archives) {
+                try (GameArchiveReader archive = new GameArchiveReader(path)) {
+                    builder.addArchive(archive);
+                }
+            }
+            games = builder.getGames();
+            skipped = builder.getSkipped();
+            invalid = builder.getInvalid();
+        }
+        long replayed = System.nanoTime();
+        OpeningExplorerBuilder.merge(directory);
+        long merged = System.nanoTime();
+        try (OpeningExplorer explorer = new OpeningExplorer(directory)) {
+            System.out.printf(Locale.ROOT, "%d partidas (ignoradas: %d sem resultado, %d com lance inválido): reprodução %.1f s, intercalação %.1f s, %d pares posição-lance%n",
+                              games, skipped, invalid, (replayed - start) / 1e9, (merged - replayed) / 1e9, explorer.size());
+        }
+    }
+    
+    private static void query(Path directory, String[] moves) throws IOException {
+        ChessMatch match = new ChessMatch();
+        if (moves.length > 0 && match.applyUci(moves) != MoveResult.OK) {
+            System.err.println("Lances inválidos: " + String.join(" ", moves));
+            System.exit(2);
+        }
+        try (OpeningExplorer explorer = new OpeningExplorer(directory)) {
+            for (MoveStats stats : explorer.moves(match)) {
+                int games = stats.getGames();
+                System.out.printf(Locale.ROOT, "%-8s %8d  %5.1f%% %5.1f%% %5.1f%%  %s%n", match.notation(stats.getMove()), games,
+                                  100.0 * stats.getWhiteWins() / games, 100.0 * stats.getDraws() / games,
+                                  100.0 * stats.getBlackWins() / games,
+                                  stats.getAverageRating() < 0 ? "-" : String.valueOf(stats.getAverageRating()));
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package application.batch;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chesslayer.ChessMatch;
+import chesslayer.ChessMove;
+import chesslayer.archive.GameArchiveReader;
+import chesslayer.engine.AnalysisLine;
+import chesslayer.engine.Search;
+
+// Procura problemas táticos nas partidas: posições em que um único lance ganha (mate ou material).
+//
+// As partidas são lidas uma a uma (os arquivos são mapeados, não carregados) e passam por uma fila
+// limitada a um grupo de workers, então arquivos maiores que a memória podem ser minerados.
+// Cada posição passa por um filtro barato (avaliação estática equilibrada e busca de profundidade 1
+// apontando ganho) antes da verificação multi-PV, que exige que o segundo melhor lance não ganhe.
+// Posições repetidas (mesmo hash) são descartadas antes da verificação.
+//
+// Saída, uma linha por problema: FEN<TAB>solução em UCI<TAB>tema<TAB>arquivo:partida:ply
+public class PuzzleMiner {
+    
+    // Ganho mínimo do melhor lance e máximo do segundo melhor, em centipeões
+    private static final int WIN = 300;
+    private static final int NOT_WINNING = 100;
+    // Nos lances seguintes da solução basta o melhor lance superar o segundo por esta margem
+    private static final int UNIQUE_GAP = 200;
+    private static final int BALANCED = 200;
+    private static final int MAX_SOLUTION_MOVES = 3;
+    private static final int MIN_PLY = 10;
+    
+    private final int depth;
+    private final int workers;
+    private final Set<Long> seen = ConcurrentHashMap.newKeySet();
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong puzzles = new AtomicLong();
+    private final AtomicLong games = new AtomicLong();
+    
+    public PuzzleMiner(int depth, int workers) {
+        this.depth = depth;
+        this.workers = workers;
+    }
+    
+    private static class Job {
+        
+        final String source;
+        final int[] moves;
+        
+        Job(String source, int[] moves) {
+            this.source = source;
+            this.moves = moves;
+        }
+    }
+    
+    private static final Job END = new Job(null, null);
+    
+    public void mine(List<Path> archives, Writer out) throws IOException, InterruptedException {
+        BlockingQueue<Job> queue = new ArrayBlockingQueue<>(workers * 4);
+        List<Thread> pool = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            Thread t = new Thread(() -> work(queue, out), "puzzle-miner-" + i);
+            t.start();
+            pool.add(t);
+        }
+        try {
+            for (Path archive : archives) {
+                try (GameArchiveReader reader = new GameArchiveReader(archive)) {
+                    String name = archive.getFileName().toString();
+                    for (int n = 0; n < reader.getGameCount(); n++) {
+                        queue.put(new Job(name + ":" + n, reader.game(n).getMoves()));
+                    }
+                }
+            }
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                queue.put(END);
+            }
+            for (Thread t : pool) {
+                t.join();
+            }
+        }
+        out.flush();
+    }
+    
+    private void work(BlockingQueue<Job> queue, Writer out) {
+        Search scanner = new Search();
+        Search verifier = new Search();
+        try {
+            while (true) {
+                Job job = queue.take();
+                if (job == END) {
+                    return;
+                }
+                try {
+                    scan(job, scanner, verifier, out);
+                } catch (RuntimeException | IOException e) {
+                    System.err.println("Partida " + job.source + " ignorada: " + e.getMessage());
+                }
+                games.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void scan(Job job, Search scanner, Search verifier, Writer out) throws IOException {
+        ChessMatch match = new ChessMatch();
+        scanner.setPosition(match);
+        for (int ply = 0; ply < job.moves.length; ply++) {
+            if (ply >= MIN_PLY) {
+                positions.incrementAndGet();
+                String puzzle = examine(match, scanner, verifier);
+                if (puzzle != null) {
+                    puzzles.incrementAndGet();
+                    synchronized (out) {
+                        out.write(puzzle + "\t" + job.source + ":" + ply + "\n");
+                    }
+                }
+            }
+            match.applyMove(job.moves[ply]);
+            scanner.advance(job.moves[ply]);
+        }
+    }
+    
+    // Linha do problema (sem a origem) ou null
+    private String examine(ChessMatch match, Search scanner, Search verifier) {
+        if (Math.abs(scanner.getEvaluator().evaluate(match.getSnapshot())) > BALANCED) {
+            return null;
+        }
+        AnalysisLine[] quick = scanner.searchRoot(1, 1);
+        if (quick.length == 0 || quick[0].getScore() < WIN) {
+            return null;
+        }
+        if (!seen.add(match.getPositionHash())) {
+            return null;
+        }
+        candidates.incrementAndGet();
+        
+        verifier.setPosition(match);
+        AnalysisLine[] lines = verifier.searchRoot(depth, 2);
+        if (lines.length == 0 || lines[0].getScore() < WIN) {
+            return null;
+        }
+        if (lines.length > 1 && !isUnique(lines[0], lines[1], lines[1].getScore() <= NOT_WINNING)) {
+            return null;
+        }
+        AnalysisLine best = lines[0];
+        
+        // A solução segue a variante principal enquanto os lances do resolvedor forem únicos
+        int[] pv = best.getPv();
+        List<Integer> solution = new ArrayList<>();
+        solution.add(pv[0]);
+        verifier.advance(pv[0]);
+        for (int i = 1; i + 1 < pv.length && solution.size() < MAX_SOLUTION_MOVES * 2 - 1; i += 2) {
+            verifier.advance(pv[i]);
+            AnalysisLine[] next = verifier.searchRoot(depth, 2);
+            if (next.length == 0 || next[0].getMove() != pv[i + 1]) {
+                break;
+            }
+            if (next.length > 1 && !isUnique(next[0], next[1], next[0].getScore() - next[1].getScore() >= UNIQUE_GAP)) {
+                break;
+            }
+            solution.add(pv[i]);
+            solution.add(pv[i + 1]);
+            verifier.advance(pv[i + 1]);
+        }
+        
+        StringBuilder sb = new StringBuilder(match.toFen()).append('\t');
+        for (int i = 0; i < solution.size(); i++) {
+            sb.append(i > 0 ? " " : "").append(ChessMove.toUci(solution.get(i)));
+        }
+        sb.append('\t').append(best.isMate() ? "mate" + best.getMateIn() : "material");
+        return sb.toString();
+    }
+    
+    // Um mate só é único se nenhum outro lance também mata; senão vale o critério de material
+    private static boolean isUnique(AnalysisLine best, AnalysisLine second, boolean materialCriterion) {
+        if (best.isMate() && best.getScore() > 0) {
+            return !(second.isMate() && second.getScore() > 0);
+        }
+        return materialCriterion;
+    }
+    
+    public void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf(Locale.ROOT, "%d partidas, %d posições, %d candidatas, %d problemas em %.1f s (%.1f partidas/s)%n",
+                          games.get(), positions.get(), candidates.get(), puzzles.get(), seconds, games.get() / seconds);
+    }
+    
+    // Uso: PuzzleMiner <saida.tsv> <arquivo>... [-workers N] [-depth N]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<Path> archives = new ArrayList<>();
+        int workers = Runtime.getRuntime().availableProcessors();
+        int depth = 3;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-workers") && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-depth") && i + 1 < args.length) {
+                depth = Integer.parseInt(args[++i]);
+            } else {
+                archives.add(Paths.get(args[i]));
+            }
+        }
+        if (args.length < 2 || archives.isEmpty()) {
+            System.err.println("Uso: PuzzleMiner <saida.tsv> <arquivo>... [-workers N] [-depth N]");
+            System.exit(2);
+        }
+        PuzzleMiner miner = new PuzzleMiner(depth, workers);
+        long start = System.nanoTime();
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            miner.mine(archives, out);
+        }
+        miner.printReport(System.nanoTime() - start);
+    }
+}
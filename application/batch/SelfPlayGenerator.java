@@ -0,0 +1,266 @@
+package application.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import chesslayer.ChessMatch;
+import chesslayer.ChessMove;
+import chesslayer.Color;
+import chesslayer.PositionSnapshot;
+import chesslayer.engine.AnalysisLine;
+import chesslayer.engine.Evaluator;
+import chesslayer.engine.PackedPosition;
+import chesslayer.engine.Search;
+
+// Gera posições rotuladas (TrainingData) por autojogo com busca rasa.
+//
+// Cada worker é uma thread com sua Search, seu gerador aleatório, seu buffer direto e seu arquivo
+// (selfplay-N.bin), então nada é compartilhado entre eles além da cota fixa de posições. Cada partida
+// começa com alguns lances aleatórios e segue com o melhor lance da busca; as posições da partida
+// ficam em arrays do worker até o resultado sair e então vão para o buffer, gravado no arquivo
+// quando enche. Só posições quietas entram: sem xeque, sem mate na pontuação e com melhor lance
+// que não captura nem promove. Arquivos existentes recebem os novos registros no fim.
+public class SelfPlayGenerator {
+    
+    private static final int OPENING_MIN_PLIES = 6;
+    private static final int OPENING_MAX_PLIES = 12;
+    private static final int MAX_PLIES = 300;
+    // Adjudicação: vantagem grande mantida por vários lances seguidos decide a partida
+    private static final int WIN_SCORE = 1000;
+    private static final int WIN_MOVES = 6;
+    private static final int BUFFER_SIZE = 4 << 20;
+    private static final long REPORT_MILLIS = 5000;
+    // Limite de segurança por lance; a busca normalmente para pela profundidade
+    private static final long MOVE_MILLIS = 10_000;
+    
+    private final Path directory;
+    private final Evaluator evaluator;
+    private final int depth;
+    private final int workers;
+    private final long seed;
+    
+    public SelfPlayGenerator(Path directory, Evaluator evaluator, int depth, int workers, long seed) {
+        this.directory = directory;
+        this.evaluator = evaluator;
+        this.depth = depth;
+        this.workers = workers;
+        this.seed = seed;
+    }
+    
+    // Gera pelo menos `positions` registros no total, divididos igualmente entre os workers
+    public void run(long positions) throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        Worker[] pool = new Worker[workers];
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            long quota = positions / workers + (i < positions % workers ? 1 : 0);
+            pool[i] = new Worker(i, quota);
+            threads[i] = new Thread(pool[i], "selfplay-" + i);
+            threads[i].start();
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(REPORT_MILLIS);
+                if (thread.isAlive()) {
+                    report(pool, start);
+                }
+            }
+        }
+        report(pool, start);
+        for (Worker worker : pool) {
+            if (worker.error instanceof IOException) {
+                throw (IOException) worker.error;
+            }
+            if (worker.error != null) {
+                throw (RuntimeException) worker.error;
+            }
+        }
+    }
+    
+    private static void report(Worker[] pool, long start) {
+        long positions = 0;
+        long games = 0;
+        for (Worker worker : pool) {
+            positions += worker.positions;
+            games += worker.games;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%d posições em %d partidas, %.1f s (%.0f posições/s)%n",
+                          positions, games, seconds, positions / seconds);
+    }
+    
+    public static Path shard(Path directory, int worker) {
+        return directory.resolve("selfplay-" + worker + ".bin");
+    }
+    
+    private class Worker implements Runnable {
+        
+        private final int index;
+        private final long quota;
+        private final SplittableRandom random;
+        private final Search search = new Search(evaluator, 16);
+        // Posições da partida em andamento, à espera do resultado
+        private final int[] packed = new int[MAX_PLIES * PackedPosition.INTS];
+        private final int[] scores = new int[MAX_PLIES];
+        private final int[] flags = new int[MAX_PLIES];
+        private int pending;
+        // Escritos só por este worker; lidos pelo relatório
+        volatile long positions;
+        volatile long games;
+        Exception error;
+        
+        Worker(int index, long quota) {
+            this.index = index;
+            this.quota = quota;
+            this.random = new SplittableRandom(seed + index);
+        }
+        
+        @Override
+        public void run() {
+            Path path = shard(directory, index);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                       StandardOpenOption.WRITE)) {
+                if (channel.size() < TrainingData.HEADER_SIZE) {
+                    // Novo, ou interrompido antes de o cabeçalho ficar completo
+                    channel.truncate(0);
+                    TrainingData.putHeader(buffer);
+                } else {
+                    TrainingData.truncatePartial(channel, path);
+                }
+                channel.position(channel.size());
+                long written = 0;
+                while (written < quota) {
+                    int result = play();
+                    for (int i = 0; i < pending; i++) {
+                        if (buffer.remaining() < TrainingData.RECORD_SIZE) {
+                            drain(channel, buffer);
+                        }
+                        TrainingData.putRecord(buffer, packed, i * PackedPosition.INTS, scores[i], result, flags[i]);
+                    }
+                    written += pending;
+                    positions = written;
+                    games++;
+                }
+                drain(channel, buffer);
+            } catch (IOException | RuntimeException e) {
+                error = e;
+            }
+        }
+        
+        private void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        // Joga uma partida e devolve o resultado; as posições ficam em packed/scores/flags
+        private int play() {
+            ChessMatch match = opening();
+            search.clear();
+            pending = 0;
+            Map<Long, Integer> repetitions = new HashMap<>();
+            int winStreak = 0;
+            while (true) {
+                int count = repetitions.merge(match.getPositionHash(), 1, Integer::sum);
+                PositionSnapshot position = match.getSnapshot();
+                if (match.legalMoves().length == 0) {
+                    if (!match.getCheck()) {
+                        return TrainingData.DRAW;
+                    }
+                    return match.getCurrentPlayer() == Color.WHITE ? TrainingData.BLACK_WINS : TrainingData.WHITE_WINS;
+                }
+                if (count >= 3 || match.getHalfmoveClock() >= 100 || match.getMoves().length >= MAX_PLIES
+                    || Tournament.insufficientMaterial(position)) {
+                    return TrainingData.DRAW;
+                }
+                if (winStreak >= WIN_MOVES || winStreak <= -WIN_MOVES) {
+                    return winStreak > 0 ? TrainingData.WHITE_WINS : TrainingData.BLACK_WINS;
+                }
+                
+                boolean whiteToMove = match.getCurrentPlayer() == Color.WHITE;
+                AnalysisLine line = search.think(match, depth, MOVE_MILLIS);
+                int whiteScore = whiteToMove ? line.getScore() : -line.getScore();
+                if (whiteScore >= WIN_SCORE) {
+                    winStreak = Math.max(winStreak, 0) + 1;
+                } else if (whiteScore <= -WIN_SCORE) {
+                    winStreak = Math.min(winStreak, 0) - 1;
+                } else {
+                    winStreak = 0;
+                }
+                int move = line.getMove();
+                boolean quiet = !match.getCheck() && !line.isMate() && ChessMove.promotion(move) == 0
+                                && position.pieceCode(ChessMove.target(move)) == 0;
+                if (quiet && pending < MAX_PLIES) {
+                    PackedPosition.pack(position, packed, pending * PackedPosition.INTS);
+                    scores[pending] = whiteScore;
+                    flags[pending] = whiteToMove ? 0 : TrainingData.BLACK_TO_MOVE;
+                    pending++;
+                }
+                match.applyMove(move);
+            }
+        }
+        
+        // Posição inicial com alguns lances aleatórios que não encerram a partida
+        private ChessMatch opening() {
+            while (true) {
+                ChessMatch match = new ChessMatch();
+                int plies = OPENING_MIN_PLIES + random.nextInt(OPENING_MAX_PLIES - OPENING_MIN_PLIES + 1);
+                for (int ply = 0; ply < plies; ply++) {
+                    int[] moves = match.legalMoves();
+                    if (moves.length == 0) {
+                        break;
+                    }
+                    match.applyMove(moves[random.nextInt(moves.length)]);
+                }
+                if (match.legalMoves().length > 0) {
+                    return match;
+                }
+            }
+        }
+    }
+    
+    // Uso: SelfPlayGenerator <diretório> [-positions N] [-workers N] [-depth N] [-seed N]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Uso: SelfPlayGenerator <diretório> [-positions N] [-workers N] [-depth N] [-seed N]");
+            System.exit(2);
+        }
+        long positions = 1_000_000;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int depth = 3;
+        long seed = System.nanoTime();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-positions":
+                    positions = Long.parseLong(args[++i]);
+                    break;
+                case "-workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "-depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        new SelfPlayGenerator(Paths.get(args[0]), new Evaluator(), depth, workers, seed).run(positions);
+    }
+}
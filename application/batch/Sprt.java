@@ -0,0 +1,99 @@
+package application.batch;
+
+// Teste sequencial da razão de verossimilhança (SPRT) para partidas entre dois motores.
+// H0: a diferença é elo0; H1: é elo1. Usa a aproximação normal do modelo trinomial (vitória,
+// empate, derrota), a mesma dos testadores de motores: LLR ~ N (s1 - s0)(2x - s0 - s1) / (2 var).
+public class Sprt {
+    
+    public enum Decision { CONTINUE, ACCEPT_H0, ACCEPT_H1 }
+    
+    private static final double PSEUDO_COUNT = 0.5;
+    
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+    private int wins;
+    private int draws;
+    private int losses;
+    // A primeira decisão é definitiva: partidas que terminam depois dela (já estavam em andamento)
+    // entram na contagem e no Elo, mas não reabrem o teste
+    private Decision decided = Decision.CONTINUE;
+    
+    // alpha: falso positivo (aceitar H1 sendo H0 verdadeira); beta: falso negativo
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        lowerBound = Math.log(beta / (1 - alpha));
+        upperBound = Math.log((1 - beta) / alpha);
+    }
+    
+    // Resultado do ponto de vista do motor testado: 1 vitória, 0.5 empate, 0 derrota
+    public synchronized Decision add(double score) {
+        if (score == 1) {
+            wins++;
+        } else if (score == 0) {
+            losses++;
+        } else {
+            draws++;
+        }
+        return decision();
+    }
+    
+    public synchronized Decision decision() {
+        if (decided == Decision.CONTINUE) {
+            double llr = llr();
+            decided = llr >= upperBound ? Decision.ACCEPT_H1 : llr <= lowerBound ? Decision.ACCEPT_H0 : Decision.CONTINUE;
+        }
+        return decided;
+    }
+    
+    public synchronized double llr() {
+        int n = wins + draws + losses;
+        if (n == 0) {
+            return 0;
+        }
+        double x = (wins + draws / 2.0) / n;
+        // Meia partida fictícia de cada resultado na variância: com resultados todos iguais ela seria 0
+        // e o teste nunca pararia justamente quando um lado vence tudo
+        double variance = ((wins + PSEUDO_COUNT) * (1 - x) * (1 - x) + (draws + PSEUDO_COUNT) * (0.5 - x) * (0.5 - x) 
+                          + (losses + PSEUDO_COUNT) * x * x) / (n + 3 * PSEUDO_COUNT);
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return n * (s1 - s0) * (2 * x - s0 - s1) / (2 * variance);
+    }
+    
+    // Diferença de Elo estimada pela pontuação média
+    public synchronized double elo() {
+        int n = wins + draws + losses;
+        if (n == 0) {
+            return 0;
+        }
+        double x = Math.min(Math.max((wins + draws / 2.0) / n, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / x - 1);
+    }
+    
+    private static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+    
+    public synchronized int getWins() {
+        return wins;
+    }
+    
+    public synchronized int getDraws() {
+        return draws;
+    }
+    
+    public synchronized int getLosses() {
+        return losses;
+    }
+    
+    public double getLowerBound() {
+        return lowerBound;
+    }
+    
+    public double getUpperBound() {
+        return upperBound;
+    }
+}
@@ -0,0 +1,60 @@
+package application.batch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latência de uma etapa do pipeline, registrada por várias threads sem bloqueio.
+// Os percentis vêm de um histograma em potências de 2 (precisão de um fator 2, suficiente para relatórios).
+public class StageStats {
+    
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(64);
+    
+    public StageStats(String name) {
+        this.name = name;
+    }
+    
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        histogram.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+    }
+    
+    public long getCount() {
+        return count.sum();
+    }
+    
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+    
+    // Limite superior do intervalo do histograma que contém o percentil (0 a 100)
+    public double percentileMillis(double percentile) {
+        long n = count.sum();
+        long target = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < 64; bucket++) {
+            seen += histogram.get(bucket);
+            if (seen >= target && seen > 0) {
+                return Math.min((double) (2L << Math.min(bucket, 61)), maxNanos.get()) / 1e6;
+            }
+        }
+        return 0;
+    }
+    
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%-10s %8d itens  média %8.2f ms  p50 %8.2f ms  p99 %8.2f ms  máx %8.2f ms",
+                             name, getCount(), getMeanMillis(), percentileMillis(50), percentileMillis(99), getMaxMillis());
+    }
+}
@@ -0,0 +1,253 @@
+package application.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import chesslayer.engine.Evaluator;
+import chesslayer.engine.PackedPosition;
+
+// Ajuste dos pesos do Evaluator no estilo Texel: minimiza o erro quadrático médio entre o resultado
+// das partidas (1, 0,5 ou 0 para as brancas) e sigmoid(K * avaliação), com K ajustado antes.
+//
+// As posições dos arquivos de treino (TrainingData) viram listas de peças em arrays primitivos:
+// cada peça é um short com o índice do peso da tabela peça-casa e um bit para as pretas, e offsets[i]
+// marca o começo da posição i. Como a avaliação é linear nos pesos, o gradiente sai direto das
+// listas; ele é calculado em paralelo por fork-join sobre fatias das posições e aplicado com Adam.
+public class TexelTuner {
+    
+    private static final int BLACK = 1 << 9;
+    private static final int LEAF_POSITIONS = 1 << 14;
+    private static final int BUFFER_SIZE = 4 << 20;
+    private static final double LN10_400 = Math.log(10) / 400;
+    // Adam: passo em centipeões por época e decaimentos usuais
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+    
+    private final ForkJoinPool pool;
+    private short[] pieces = new short[1 << 20];
+    private int[] offsets = new int[1];
+    private byte[] results = new byte[0];
+    private int count;
+    
+    public TexelTuner(int threads) {
+        pool = new ForkJoinPool(threads);
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    // Acrescenta as posições do arquivo, lendo-o em sequência por um buffer direto
+    public void load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long records = TrainingData.count(channel, path);
+            if (count + records > Integer.MAX_VALUE - 1) {
+                throw new IOException("Posições demais para um ajuste: " + (count + records));
+            }
+            offsets = Arrays.copyOf(offsets, count + (int) records + 1);
+            results = Arrays.copyOf(results, count + (int) records);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE - BUFFER_SIZE % TrainingData.RECORD_SIZE);
+            int[] packed = new int[PackedPosition.INTS];
+            long position = TrainingData.HEADER_SIZE;
+            while (position < channel.size()) {
+                buffer.clear();
+                while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+                    continue;
+                }
+                buffer.flip();
+                position += buffer.limit();
+                while (buffer.remaining() >= TrainingData.RECORD_SIZE) {
+                    for (int i = 0; i < PackedPosition.INTS; i++) {
+                        packed[i] = buffer.getInt();
+                    }
+                    buffer.getShort();
+                    int result = buffer.get();
+                    buffer.get();
+                    add(packed, result);
+                }
+            }
+        }
+    }
+    
+    private void add(int[] packed, int result) {
+        int start = offsets[count];
+        if (pieces.length - start < Evaluator.SQUARES) {
+            pieces = Arrays.copyOf(pieces, pieces.length * 2);
+        }
+        int end = start;
+        for (int square = 0; square < Evaluator.SQUARES; square++) {
+            int code = PackedPosition.pieceCode(packed, 0, square);
+            if (code == 0) {
+                continue;
+            }
+            int type = (code - 1) % Evaluator.PIECE_TYPES;
+            // Pretas usam a tabela espelhada, como no Evaluator
+            pieces[end++] = (short) (code <= 6 ? type * Evaluator.SQUARES + square
+                                               : BLACK | type * Evaluator.SQUARES + (square ^ 56));
+        }
+        results[count] = (byte) result;
+        offsets[++count] = end;
+    }
+    
+    // Erro médio com os pesos dados
+    public double error(double[] weights, double k) {
+        return pool.invoke(new Shard(weights, k, 0, count, false))[Evaluator.WEIGHT_COUNT] / count;
+    }
+    
+    // K que minimiza o erro com os pesos iniciais (busca ternária)
+    public double fitK(double[] weights) {
+        double low = 0.05;
+        double high = 5;
+        for (int i = 0; i < 40; i++) {
+            double a = low + (high - low) / 3;
+            double b = high - (high - low) / 3;
+            if (error(weights, a) < error(weights, b)) {
+                high = b;
+            } else {
+                low = a;
+            }
+        }
+        return (low + high) / 2;
+    }
+    
+    // Otimiza por `epochs` passadas completas; devolve os pesos arredondados
+    public int[] tune(int[] initial, int epochs, double rate) {
+        double[] weights = new double[Evaluator.WEIGHT_COUNT];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = initial[i];
+        }
+        long start = System.nanoTime();
+        double k = fitK(weights);
+        System.out.printf(Locale.ROOT, "%d posições, K = %.3f, erro inicial %.6f%n", count, k, error(weights, k));
+        double[] m = new double[weights.length];
+        double[] v = new double[weights.length];
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double[] gradient = pool.invoke(new Shard(weights, k, 0, count, true));
+            for (int i = 0; i < weights.length; i++) {
+                double g = gradient[i] / count;
+                m[i] = BETA1 * m[i] + (1 - BETA1) * g;
+                v[i] = BETA2 * v[i] + (1 - BETA2) * g * g;
+                double mHat = m[i] / (1 - Math.pow(BETA1, epoch));
+                double vHat = v[i] / (1 - Math.pow(BETA2, epoch));
+                weights[i] -= rate * mHat / (Math.sqrt(vHat) + EPSILON);
+            }
+            if (epoch % 50 == 0 || epoch == epochs) {
+                System.out.printf(Locale.ROOT, "época %d: erro %.6f (%.1f s)%n", epoch,
+                                  gradient[Evaluator.WEIGHT_COUNT] / count, (System.nanoTime() - start) / 1e9);
+            }
+        }
+        int[] tuned = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            tuned[i] = (int) Math.round(weights[i]);
+        }
+        return tuned;
+    }
+    
+    // Gradiente do erro (soma sobre as posições da fatia) e, na última posição do vetor, a soma dos erros
+    private class Shard extends RecursiveTask<double[]> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final double[] weights;
+        private final double k;
+        private final int from;
+        private final int to;
+        private final boolean gradient;
+        
+        Shard(double[] weights, double k, int from, int to, boolean gradient) {
+            this.weights = weights;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+            this.gradient = gradient;
+        }
+        
+        @Override
+        protected double[] compute() {
+            if (to - from > LEAF_POSITIONS) {
+                int mid = (from + to) >>> 1;
+                Shard left = new Shard(weights, k, from, mid, gradient);
+                left.fork();
+                double[] sum = new Shard(weights, k, mid, to, gradient).compute();
+                double[] other = left.join();
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += other[i];
+                }
+                return sum;
+            }
+            double[] sum = new double[Evaluator.WEIGHT_COUNT + 1];
+            for (int p = from; p < to; p++) {
+                double eval = 0;
+                for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                    int piece = pieces[i];
+                    int index = piece & (BLACK - 1);
+                    double value = weights[index] + weights[Evaluator.MATERIAL + index / Evaluator.SQUARES];
+                    eval += (piece & BLACK) == 0 ? value : -value;
+                }
+                double target = results[p] * 0.5;
+                double predicted = 1 / (1 + Math.exp(-k * LN10_400 * eval));
+                double difference = predicted - target;
+                sum[Evaluator.WEIGHT_COUNT] += difference * difference;
+                if (!gradient) {
+                    continue;
+                }
+                // d(erro)/d(avaliação); cada peça soma com o seu sinal no peso da casa e no material
+                double slope = 2 * difference * predicted * (1 - predicted) * k * LN10_400;
+                for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                    int piece = pieces[i];
+                    int index = piece & (BLACK - 1);
+                    double g = (piece & BLACK) == 0 ? slope : -slope;
+                    sum[index] += g;
+                    sum[Evaluator.MATERIAL + index / Evaluator.SQUARES] += g;
+                }
+            }
+            return sum;
+        }
+    }
+    
+    // Uso: TexelTuner <saida.txt> <arquivo de treino>... [-epochs N] [-rate R] [-threads N] [-weights inicial.txt]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: TexelTuner <saida.txt> <arquivo de treino>... [-epochs N] [-rate R] [-threads N] [-weights inicial.txt]");
+            System.exit(2);
+        }
+        int epochs = 300;
+        double rate = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int[] initial = new Evaluator().getWeights();
+        List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-epochs") && i + 1 < args.length) {
+                epochs = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-rate") && i + 1 < args.length) {
+                rate = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-weights") && i + 1 < args.length) {
+                initial = Evaluator.loadWeights(Paths.get(args[++i]));
+            } else {
+                files.add(Paths.get(args[i]));
+            }
+        }
+        TexelTuner tuner = new TexelTuner(threads);
+        long start = System.nanoTime();
+        for (Path file : files) {
+            tuner.load(file);
+        }
+        System.out.printf(Locale.ROOT, "Carregadas %d posições em %.1f s%n", tuner.size(), (System.nanoTime() - start) / 1e9);
+        int[] tuned = tuner.tune(initial, epochs, rate);
+        Evaluator.saveWeights(tuned, Paths.get(args[0]));
+        System.out.println("Pesos gravados em " + args[0] + "; para usá-los por padrão, copie-os para chesslayer/engine/weights.txt");
+    }
+}
@@ -0,0 +1,301 @@
+package application.batch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import chesslayer.ChessMatch;
+import chesslayer.ChessMove;
+import chesslayer.Color;
+import chesslayer.MoveResult;
+import chesslayer.PositionSnapshot;
+import chesslayer.archive.PgnWriter;
+import chesslayer.engine.AnalysisLine;
+import chesslayer.engine.Evaluator;
+import chesslayer.engine.Search;
+
+// Torneio de autojogo entre duas configurações de motor (A é a testada, B a referência).
+//
+// Cada partida é uma tarefa independente, com sua ChessMatch e uma Search por lado, executada num
+// pool work-stealing do tamanho do número de núcleos. Cada abertura do arquivo é jogada duas vezes,
+// com as cores trocadas. Após cada resultado o SPRT é atualizado; decidido o teste, as partidas
+// que ainda não começaram são descartadas.
+public class Tournament {
+    
+    // Adjudicação: vitória quando os dois lados concordam com uma vantagem grande por vários lances;
+    // empate quando a avaliação fica perto de zero por muito tempo ou a partida passa do limite
+    private static final int WIN_SCORE = 1000;
+    private static final int WIN_MOVES = 4;
+    private static final int DRAW_SCORE = 10;
+    private static final int DRAW_MOVES = 12;
+    private static final int DRAW_MIN_PLY = 80;
+    private static final int MAX_PLIES = 400;
+    
+    // Configuração de um motor: avaliação, profundidade máxima e tempo por lance
+    public static class Engine {
+        
+        final String name;
+        final Evaluator evaluator;
+        final int depth;
+        final long moveMillis;
+        
+        public Engine(String name, Evaluator evaluator, int depth, long moveMillis) {
+            this.name = name;
+            this.evaluator = evaluator;
+            this.depth = depth;
+            this.moveMillis = moveMillis;
+        }
+    }
+    
+    private final Engine a;
+    private final Engine b;
+    private final List<int[]> openings;
+    private final Sprt sprt;
+    private final PgnWriter pgn;
+    private final AtomicInteger played = new AtomicInteger();
+    private volatile boolean stopped;
+    
+    public Tournament(Engine a, Engine b, List<int[]> openings, Sprt sprt, PgnWriter pgn) {
+        if (openings.isEmpty()) {
+            openings = Collections.singletonList(new int[0]);
+        }
+        // Uma abertura que não se aplica inteira faria a partida começar de uma posição parcial
+        for (int i = 0; i < openings.size(); i++) {
+            if (new ChessMatch().applyMoves(openings.get(i)) != MoveResult.OK) {
+                throw new IllegalArgumentException("Abertura " + (i + 1) + " contém lance ilegal");
+            }
+        }
+        this.a = a;
+        this.b = b;
+        this.openings = openings;
+        this.sprt = sprt;
+        this.pgn = pgn;
+    }
+    
+    // Uma abertura por linha, em lances UCI separados por espaço; linhas vazias e com # são ignoradas
+    public static List<int[]> readOpenings(Path path) throws IOException {
+        List<int[]> openings = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            int[] moves = new int[tokens.length];
+            ChessMatch check = new ChessMatch();
+            for (int i = 0; i < tokens.length; i++) {
+                moves[i] = ChessMove.fromUci(tokens[i]);
+                if (moves[i] < 0 || check.applyMove(moves[i]) != MoveResult.OK) {
+                    throw new IOException("Abertura inválida (lance " + tokens[i] + "): " + line);
+                }
+            }
+            openings.add(moves);
+        }
+        return openings;
+    }
+    
+    // Joga até maxGames partidas ou até o SPRT decidir
+    public void run(int maxGames, int threads) throws InterruptedException {
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+        long start = System.nanoTime();
+        for (int game = 0; game < maxGames; game++) {
+            final int round = game;
+            pool.execute(() -> {
+                if (stopped) {
+                    return;
+                }
+                try {
+                    play(round);
+                    report(start);
+                } catch (RuntimeException e) {
+                    System.err.println("Partida " + (round + 1) + " abortada: " + e);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+    
+    private void play(int round) {
+        int[] opening = openings.get((round / 2) % openings.size());
+        boolean aIsWhite = round % 2 == 0;
+        Engine white = aIsWhite ? a : b;
+        Engine black = aIsWhite ? b : a;
+        Search whiteSearch = new Search(white.evaluator, 16);
+        Search blackSearch = new Search(black.evaluator, 16);
+        
+        ChessMatch match = new ChessMatch();
+        if (match.applyMoves(opening) != MoveResult.OK) {
+            throw new IllegalStateException("Abertura inválida na partida " + (round + 1));
+        }
+        Map<Long, Integer> repetitions = new HashMap<>();
+        int winStreak = 0;
+        int drawStreak = 0;
+        String result;
+        String termination;
+        while (true) {
+            int count = repetitions.merge(match.getPositionHash(), 1, Integer::sum);
+            if (match.legalMoves().length == 0) {
+                if (match.getCheck()) {
+                    result = match.getCurrentPlayer() == Color.WHITE ? "0-1" : "1-0";
+                    termination = "xeque-mate";
+                } else {
+                    result = "1/2-1/2";
+                    termination = "afogamento";
+                }
+                break;
+            }
+            String draw = count >= 3 ? "tripla repetição" : match.getHalfmoveClock() >= 100 ? "regra dos 50 lances"
+                        : insufficientMaterial(match.getSnapshot()) ? "material insuficiente"
+                        : match.getMoves().length >= MAX_PLIES ? "limite de lances" 
+                        : drawStreak >= DRAW_MOVES ? "adjudicação" : null;
+            if (draw != null) {
+                result = "1/2-1/2";
+                termination = draw;
+                break;
+            }
+            if (winStreak >= WIN_MOVES || winStreak <= -WIN_MOVES) {
+                result = winStreak > 0 ? "1-0" : "0-1";
+                termination = "adjudicação";
+                break;
+            }
+            
+            boolean whiteToMove = match.getCurrentPlayer() == Color.WHITE;
+            Engine engine = whiteToMove ? white : black;
+            AnalysisLine line = (whiteToMove ? whiteSearch : blackSearch).think(match, engine.depth, engine.moveMillis);
+            int whiteScore = whiteToMove ? line.getScore() : -line.getScore();
+            
+            // As sequências contam lances consecutivos em que a avaliação ficou na faixa
+            if (whiteScore >= WIN_SCORE) {
+                winStreak = Math.max(winStreak, 0) + 1;
+            } else if (whiteScore <= -WIN_SCORE) {
+                winStreak = Math.min(winStreak, 0) - 1;
+            } else {
+                winStreak = 0;
+            }
+            drawStreak = match.getMoves().length >= DRAW_MIN_PLY && Math.abs(whiteScore) <= DRAW_SCORE ? drawStreak + 1 : 0;
+            match.applyMove(line.getMove());
+        }
+        
+        double whiteScore = result.equals("1-0") ? 1 : result.equals("0-1") ? 0 : 0.5;
+        Sprt.Decision decision = sprt.add(aIsWhite ? whiteScore : 1 - whiteScore);
+        if (decision != Sprt.Decision.CONTINUE) {
+            stopped = true;
+        }
+        played.incrementAndGet();
+        
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Autojogo " + a.name + " x " + b.name);
+        tags.put("Site", "local");
+        tags.put("Date", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        tags.put("Round", Integer.toString(round + 1));
+        tags.put("White", white.name);
+        tags.put("Black", black.name);
+        tags.put("Result", result);
+        tags.put("Termination", termination);
+        synchronized (pgn) {
+            try {
+                pgn.write(tags, match);
+            } catch (IOException e) {
+                System.err.println("Falha ao gravar a partida " + (round + 1) + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    // Sem peões, torres ou damas e no máximo uma peça menor no tabuleiro
+    static boolean insufficientMaterial(PositionSnapshot position) {
+        int minors = 0;
+        for (int square = 0; square < 64; square++) {
+            int type = (position.pieceCode(square) - 1) % 6;
+            if (type == 0 || type == 3 || type == 4) {
+                return false;
+            }
+            if (type == 1 || type == 2) {
+                minors++;
+            }
+        }
+        return minors <= 1;
+    }
+    
+    private synchronized void report(long start) {
+        double minutes = (System.nanoTime() - start) / 60e9;
+        System.out.printf(Locale.ROOT, "Partidas %d (%.1f/min)  +%d =%d -%d  Elo %+.1f  LLR %.2f [%.2f, %.2f]%n",
+                          played.get(), played.get() / minutes, sprt.getWins(), sprt.getDraws(), sprt.getLosses(),
+                          sprt.elo(), sprt.llr(), sprt.getLowerBound(), sprt.getUpperBound());
+    }
+    
+    public Sprt.Decision getDecision() {
+        return sprt.decision();
+    }
+    
+    // Uso: Tournament <aberturas.txt> <saida.pgn> [-games N] [-threads N] [-a prof ms] [-b prof ms] [-aw pesos.txt] [-bw pesos.txt] [-elo elo0 elo1]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Uso: Tournament <aberturas.txt> <saida.pgn> [-games N] [-threads N] [-a prof ms] [-b prof ms] [-aw pesos.txt] [-bw pesos.txt] [-elo elo0 elo1]");
+            System.exit(2);
+        }
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depthA = 3;
+        int depthB = 3;
+        long millisA = 100;
+        long millisB = 100;
+        Evaluator evaluatorA = new Evaluator();
+        Evaluator evaluatorB = evaluatorA;
+        double elo0 = 0;
+        double elo1 = 10;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-a":
+                    depthA = Integer.parseInt(args[++i]);
+                    millisA = Long.parseLong(args[++i]);
+                    break;
+                case "-b":
+                    depthB = Integer.parseInt(args[++i]);
+                    millisB = Long.parseLong(args[++i]);
+                    break;
+                case "-aw":
+                    evaluatorA = new Evaluator(Evaluator.loadWeights(Paths.get(args[++i])));
+                    break;
+                case "-bw":
+                    evaluatorB = new Evaluator(Evaluator.loadWeights(Paths.get(args[++i])));
+                    break;
+                case "-elo":
+                    elo0 = Double.parseDouble(args[++i]);
+                    elo1 = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        Engine a = new Engine("A", evaluatorA, depthA, millisA);
+        Engine b = new Engine("B", evaluatorB, depthB, millisB);
+        try (PgnWriter pgn = new PgnWriter(Paths.get(args[1]))) {
+            Tournament tournament = new Tournament(a, b, readOpenings(Paths.get(args[0])), new Sprt(elo0, elo1, 0.05, 0.05), pgn);
+            tournament.run(games, threads);
+            System.out.println("Resultado do SPRT: " + tournament.getDecision());
+        }
+    }
+}
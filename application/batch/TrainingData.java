@@ -0,0 +1,75 @@
+package application.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chesslayer.engine.PackedPosition;
+
+// Arquivo de posições rotuladas para treinar a avaliação: cabeçalho (MAGIC, versão) seguido de
+// registros de 36 bytes: posição (PackedPosition, 8 ints), pontuação da busca em centipeões do
+// ponto de vista das brancas (short), resultado da partida (0 = pretas venceram, 1 = empate,
+// 2 = brancas venceram) e flags (bit 0 = pretas jogam)
+public final class TrainingData {
+    
+    public static final int MAGIC = 0x5854524E; // "XTRN"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_SIZE = PackedPosition.INTS * 4 + 4;
+    public static final int SCORE_LIMIT = 10000;
+    
+    public static final int BLACK_WINS = 0;
+    public static final int DRAW = 1;
+    public static final int WHITE_WINS = 2;
+    public static final int BLACK_TO_MOVE = 1;
+    
+    private TrainingData() {
+    }
+    
+    static void putHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+    
+    static void putRecord(ByteBuffer buffer, int[] packed, int offset, int score, int result, int flags) {
+        for (int i = 0; i < PackedPosition.INTS; i++) {
+            buffer.putInt(packed[offset + i]);
+        }
+        buffer.putShort((short) Math.max(-SCORE_LIMIT, Math.min(SCORE_LIMIT, score)));
+        buffer.put((byte) result);
+        buffer.put((byte) flags);
+    }
+    
+    // Número de registros do arquivo, depois de conferir o cabeçalho
+    public static long count(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return count(channel, path);
+        }
+    }
+    
+    // Descarta o registro incompleto deixado no fim por uma execução interrompida no meio da gravação,
+    // para que o arquivo volte a ter cabeçalho + k registros, e retorna k
+    static long truncatePartial(FileChannel channel, Path path) throws IOException {
+        long size = channel.size();
+        long complete = size < HEADER_SIZE ? size : HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+        if (complete < size) {
+            System.err.println("Aviso: " + path + " terminava com um registro incompleto (" + (size - complete) 
+                               + " bytes), descartado");
+            channel.truncate(complete);
+        }
+        return count(channel, path);
+    }
+    
+    static long count(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() >= HEADER_SIZE) {
+            channel.read(header, 0);
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+            || (channel.size() - HEADER_SIZE) % RECORD_SIZE != 0) {
+            throw new IOException("Arquivo de treino inválido: " + path);
+        }
+        return (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+    }
+}
@@ -0,0 +1,406 @@
+package application.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import application.server.TimerWheel;
+import chesslayer.ChessMove;
+import chesslayer.archive.GameArchiveReader;
+
+// Coordenador da análise distribuída: divide as partidas dos arquivos em leases (uma partida por
+// lease) e os entrega aos workers que pedem trabalho pelo ClusterProtocol.
+//
+// Cada lease tem um prazo numa TimerWheel, renovado a cada resultado recebido. Se o prazo vence
+// ou a conexão do worker cai, a partida volta para o início da fila e é reenviada, até
+// maxAttempts tentativas. Os resultados de um lease ficam guardados até o COMPLETE e só então vão
+// para a saída, então uma partida reenviada nunca aparece duas vezes; frames de leases vencidos
+// são descartados. Uma thread por conexão; o estado é protegido pelo monitor do coordenador.
+//
+// Saída, uma linha por posição: arquivo:partida<TAB>ply<TAB>lance jogado<TAB>melhor lance<TAB>pontuação<TAB>profundidade
+public class AnalysisCoordinator implements Closeable {
+    
+    private static final long WAIT_MILLIS = 500;
+    private static final long REPORT_MILLIS = 5000;
+    
+    private final List<Path> paths;
+    private final List<GameArchiveReader> archives = new ArrayList<>();
+    private final int depth;
+    private final int moveMillis;
+    private final long leaseMillis;
+    private final int maxAttempts;
+    private final Writer out;
+    private final TimerWheel wheel = new TimerWheel();
+    private final ServerSocket server;
+    
+    // Estado protegido por this
+    private final Deque<Work> retries = new ArrayDeque<>();
+    private final Map<Long, Lease> active = new HashMap<>();
+    private int archiveCursor;
+    private int gameCursor;
+    private long nextLeaseId = 1;
+    private int totalGames;
+    private int completedGames;
+    private int failedGames;
+    private long positions;
+    private long retried;
+    private long discardedFrames;
+    private int connectedWorkers;
+    
+    public AnalysisCoordinator(int port, List<Path> paths, int depth, int moveMillis, long leaseMillis,
+                               int maxAttempts, Writer out) throws IOException {
+        this.paths = paths;
+        this.depth = depth;
+        this.moveMillis = moveMillis;
+        this.leaseMillis = leaseMillis;
+        this.maxAttempts = maxAttempts;
+        this.out = out;
+        try {
+            for (Path path : paths) {
+                GameArchiveReader archive = new GameArchiveReader(path);
+                archives.add(archive);
+                totalGames += archive.getGameCount();
+            }
+            server = new ServerSocket();
+            server.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+    
+    public int getPort() {
+        return server.getLocalPort();
+    }
+    
+    // Partida de um arquivo com o número de tentativas já feitas
+    private static class Work {
+        
+        final String source;
+        final int[] moves;
+        int attempts;
+        
+        Work(String source, int[] moves) {
+            this.source = source;
+            this.moves = moves;
+        }
+    }
+    
+    private class Lease {
+        
+        final long id;
+        final Work work;
+        final Connection owner;
+        final StringBuilder lines = new StringBuilder();
+        int received;
+        TimerWheel.Timeout timeout;
+        
+        Lease(long id, Work work, Connection owner) {
+            this.id = id;
+            this.work = work;
+            this.owner = owner;
+        }
+        
+        void renew() {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            timeout = wheel.scheduleAfter(leaseMillis, () -> expire(this, "prazo vencido"));
+        }
+    }
+    
+    // Aceita workers até todas as partidas terminarem (ou falharem) e então fecha o servidor
+    public void run() throws IOException, InterruptedException {
+        Thread acceptor = new Thread(this::accept, "coordinator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        long start = System.nanoTime();
+        synchronized (this) {
+            while (!finished()) {
+                wait(REPORT_MILLIS);
+                report(start);
+            }
+            report(start);
+        }
+        server.close();
+        out.flush();
+    }
+    
+    private void accept() {
+        int count = 0;
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread thread = new Thread(new Connection(socket), "coordinator-conn-" + count++);
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("Falha ao aceitar worker: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private boolean finished() {
+        return retries.isEmpty() && active.isEmpty() && !unsentGames();
+    }
+    
+    // Pula os arquivos já esgotados; true se ainda há partidas nunca enviadas
+    private boolean unsentGames() {
+        while (archiveCursor < archives.size() && gameCursor == archives.get(archiveCursor).getGameCount()) {
+            archiveCursor++;
+            gameCursor = 0;
+        }
+        return archiveCursor < archives.size();
+    }
+    
+    // Próxima partida: primeiro as devolvidas, depois as ainda não enviadas; null se não há
+    private Work nextWork() {
+        if (!retries.isEmpty()) {
+            return retries.poll();
+        }
+        if (!unsentGames()) {
+            return null;
+        }
+        int game = gameCursor++;
+        return new Work(paths.get(archiveCursor).getFileName() + ":" + game, archives.get(archiveCursor).game(game).getMoves());
+    }
+    
+    private synchronized Lease lease(Connection owner) {
+        Work work = nextWork();
+        if (work == null) {
+            return null;
+        }
+        work.attempts++;
+        Lease lease = new Lease(nextLeaseId++, work, owner);
+        active.put(lease.id, lease);
+        lease.renew();
+        return lease;
+    }
+    
+    private synchronized void result(Connection owner, long leaseId, int ply, int best, int score, int resultDepth) {
+        Lease lease = active.get(leaseId);
+        if (lease == null || lease.owner != owner || ply != lease.received || ply >= lease.work.moves.length) {
+            discardedFrames++;
+            return;
+        }
+        lease.lines.append(lease.work.source).append('\t').append(ply).append('\t')
+                   .append(ChessMove.toUci(lease.work.moves[ply])).append('\t').append(ChessMove.toUci(best))
+                   .append('\t').append(score).append('\t').append(resultDepth).append('\n');
+        lease.received++;
+        lease.renew();
+    }
+    
+    // A saída é gravada sob o monitor: quando run() vê o fim, todas as linhas já estão no writer
+    private synchronized void complete(Connection owner, long leaseId) throws IOException {
+        Lease lease = active.get(leaseId);
+        if (lease == null || lease.owner != owner || lease.received != lease.work.moves.length) {
+            discardedFrames++;
+            return;
+        }
+        active.remove(leaseId);
+        lease.timeout.cancel();
+        out.write(lease.lines.toString());
+        completedGames++;
+        positions += lease.received;
+        notifyAll();
+    }
+    
+    // Devolve a partida à fila (ou a abandona após maxAttempts); chamado pela roda ou ao perder a conexão
+    private synchronized void expire(Lease lease, String reason) {
+        if (active.remove(lease.id, lease)) {
+            lease.timeout.cancel();
+            if (lease.work.attempts >= maxAttempts) {
+                failedGames++;
+                System.err.println("Partida " + lease.work.source + " abandonada após " + lease.work.attempts + " tentativas");
+            } else {
+                retries.addFirst(lease.work);
+                retried++;
+                System.err.println("Lease " + lease.id + " (" + lease.work.source + ") devolvido: " + reason);
+            }
+            notifyAll();
+        }
+    }
+    
+    private synchronized void disconnected(Connection connection) {
+        List<Lease> lost = new ArrayList<>();
+        for (Lease lease : active.values()) {
+            if (lease.owner == connection) {
+                lost.add(lease);
+            }
+        }
+        for (Lease lease : lost) {
+            expire(lease, "conexão perdida");
+        }
+        if (connection.hello) {
+            connectedWorkers--;
+        }
+    }
+    
+    private synchronized void report(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "Partidas %d/%d (%d abandonadas), %d posições (%.1f/s), %d workers, %d leases ativos, %d reenvios, %d frames descartados%n",
+                          completedGames, totalGames, failedGames, positions, positions / seconds, connectedWorkers,
+                          active.size(), retried, discardedFrames);
+    }
+    
+    public synchronized int getCompletedGames() {
+        return completedGames;
+    }
+    
+    public synchronized int getFailedGames() {
+        return failedGames;
+    }
+    
+    private class Connection implements Runnable {
+        
+        private final Socket socket;
+        boolean hello;
+        
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+        
+        @Override
+        public void run() {
+            String name = socket.getRemoteSocketAddress().toString();
+            try (Socket s = socket) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                while (true) {
+                    ByteBuffer frame = ClusterProtocol.receive(in);
+                    byte type = frame.get();
+                    if (!hello && type != ClusterProtocol.HELLO) {
+                        throw new IOException("Esperado HELLO, recebido " + type);
+                    }
+                    switch (type) {
+                        case ClusterProtocol.HELLO:
+                            if (frame.getInt() != ClusterProtocol.VERSION) {
+                                throw new IOException("Versão do protocolo incompatível");
+                            }
+                            name = new String(ClusterProtocol.getString(frame), StandardCharsets.UTF_8) + " (" + name + ")";
+                            hello = true;
+                            synchronized (AnalysisCoordinator.this) {
+                                connectedWorkers++;
+                            }
+                            break;
+                        case ClusterProtocol.REQUEST:
+                            reply(output);
+                            break;
+                        case ClusterProtocol.RESULT:
+                            long leaseId = frame.getLong();
+                            int ply = Short.toUnsignedInt(frame.getShort());
+                            int best = Short.toUnsignedInt(frame.getShort());
+                            int score = frame.getInt();
+                            int resultDepth = frame.get();
+                            result(this, leaseId, ply, best, score, resultDepth);
+                            break;
+                        case ClusterProtocol.COMPLETE:
+                            complete(this, frame.getLong());
+                            break;
+                        default:
+                            throw new IOException("Frame desconhecido: " + type);
+                    }
+                }
+            } catch (EOFException | SocketException e) {
+                // Worker encerrou ou caiu
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Conexão com " + name + " encerrada: " + e);
+            } finally {
+                disconnected(this);
+            }
+        }
+        
+        private void reply(DataOutputStream output) throws IOException {
+            Lease lease = lease(this);
+            ByteBuffer frame;
+            if (lease != null) {
+                int[] moves = lease.work.moves;
+                frame = ClusterProtocol.frame(ClusterProtocol.LEASE, 8 + 1 + 4 + 2 + moves.length * 2);
+                frame.putLong(lease.id).put((byte) depth).putInt(moveMillis).putShort((short) moves.length);
+                for (int move : moves) {
+                    frame.putShort((short) move);
+                }
+            } else if (isFinished()) {
+                frame = ClusterProtocol.frame(ClusterProtocol.DONE, 0);
+            } else {
+                frame = ClusterProtocol.frame(ClusterProtocol.WAIT, 4);
+                frame.putInt((int) WAIT_MILLIS);
+            }
+            ClusterProtocol.send(output, frame);
+        }
+    }
+    
+    private synchronized boolean isFinished() {
+        return finished();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        wheel.close();
+        if (server != null) {
+            server.close();
+        }
+        for (GameArchiveReader archive : archives) {
+            archive.close();
+        }
+    }
+    
+    // Uso: AnalysisCoordinator <saida.tsv> <arquivo>... [-port N] [-depth N] [-ms N] [-lease ms] [-attempts N]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Uso: AnalysisCoordinator <saida.tsv> <arquivo>... [-port N] [-depth N] [-ms N] [-lease ms] [-attempts N]");
+            System.exit(2);
+        }
+        List<Path> archives = new ArrayList<>();
+        int port = 7070;
+        int depth = 4;
+        int moveMillis = 1000;
+        long leaseMillis = 30_000;
+        int attempts = 3;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-depth") && i + 1 < args.length) {
+                depth = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-ms") && i + 1 < args.length) {
+                moveMillis = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-lease") && i + 1 < args.length) {
+                leaseMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-attempts") && i + 1 < args.length) {
+                attempts = Integer.parseInt(args[++i]);
+            } else {
+                archives.add(Paths.get(args[i]));
+            }
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8);
+             AnalysisCoordinator coordinator = new AnalysisCoordinator(port, archives, depth, moveMillis, leaseMillis, attempts, out)) {
+            System.out.println("Coordenador na porta " + coordinator.getPort());
+            coordinator.run();
+        }
+    }
+}
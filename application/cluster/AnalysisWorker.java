@@ -0,0 +1,163 @@
+package application.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chesslayer.ChessMatch;
+import chesslayer.MoveResult;
+import chesslayer.engine.AnalysisLine;
+import chesslayer.engine.Search;
+
+// Worker da análise distribuída: cada thread abre sua própria conexão com o coordenador e repete
+// pedir um lease, analisar cada posição da partida com sua Search e enviar um RESULT por ply
+// (que renova o lease) e o COMPLETE no fim. Termina quando o coordenador responde DONE.
+public class AnalysisWorker {
+    
+    private static final int CONNECT_ATTEMPTS = 20;
+    private static final long CONNECT_RETRY_MILLIS = 500;
+    
+    private final String host;
+    private final int port;
+    private final String name;
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong positions = new AtomicLong();
+    
+    public AnalysisWorker(String host, int port, String name) {
+        this.host = host;
+        this.port = port;
+        this.name = name;
+    }
+    
+    public void run(int threads) throws InterruptedException {
+        Thread[] pool = new Thread[threads];
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            String threadName = name + "-" + i;
+            pool[i] = new Thread(() -> {
+                try {
+                    serve(threadName);
+                } catch (IOException e) {
+                    System.err.println(threadName + ": " + e);
+                }
+            }, threadName);
+            pool[i].start();
+        }
+        for (Thread thread : pool) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%s: %d partidas, %d posições em %.1f s (%.1f posições/s)%n",
+                          name, games.get(), positions.get(), seconds, positions.get() / seconds);
+    }
+    
+    // O coordenador pode ainda não estar ouvindo quando os workers sobem
+    private Socket connect() throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress(host, port));
+                socket.setTcpNoDelay(true);
+                return socket;
+            } catch (ConnectException e) {
+                if (attempt == CONNECT_ATTEMPTS) {
+                    throw e;
+                }
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            }
+        }
+    }
+    
+    private void serve(String threadName) throws IOException {
+        Search search = new Search();
+        try (Socket socket = connect()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            byte[] utf8 = threadName.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer hello = ClusterProtocol.frame(ClusterProtocol.HELLO, 4 + 2 + utf8.length);
+            hello.putInt(ClusterProtocol.VERSION);
+            ClusterProtocol.putString(hello, utf8);
+            ClusterProtocol.send(out, hello);
+            while (true) {
+                ClusterProtocol.send(out, ClusterProtocol.frame(ClusterProtocol.REQUEST, 0));
+                ByteBuffer reply = ClusterProtocol.receive(in);
+                byte type = reply.get();
+                if (type == ClusterProtocol.DONE) {
+                    return;
+                }
+                if (type == ClusterProtocol.WAIT) {
+                    Thread.sleep(reply.getInt());
+                } else if (type == ClusterProtocol.LEASE) {
+                    analyse(reply, search, out);
+                } else {
+                    throw new IOException("Frame inesperado: " + type);
+                }
+            }
+        } catch (ConnectException e) {
+            throw e;
+        } catch (EOFException | SocketException e) {
+            // Coordenador fecha ao terminar todas as partidas, às vezes antes do DONE de quem estava em WAIT
+            System.err.println(threadName + ": coordenador encerrou a conexão");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void analyse(ByteBuffer lease, Search search, DataOutputStream out) throws IOException {
+        long leaseId = lease.getLong();
+        int depth = lease.get();
+        int moveMillis = lease.getInt();
+        int[] moves = new int[Short.toUnsignedInt(lease.getShort())];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = Short.toUnsignedInt(lease.getShort());
+        }
+        search.clear();
+        ChessMatch match = new ChessMatch();
+        for (int ply = 0; ply < moves.length; ply++) {
+            AnalysisLine line = search.think(match, depth, moveMillis);
+            ByteBuffer result = ClusterProtocol.frame(ClusterProtocol.RESULT, 8 + 2 + 2 + 4 + 1);
+            result.putLong(leaseId).putShort((short) ply).putShort((short) (line == null ? 0 : line.getMove()))
+                  .putInt(line == null ? 0 : line.getScore()).put((byte) (line == null ? 0 : line.getDepth()));
+            ClusterProtocol.send(out, result);
+            if (match.applyMove(moves[ply]) != MoveResult.OK) {
+                throw new IOException("Lance inválido no lease " + leaseId + ", ply " + (ply + 1));
+            }
+            positions.incrementAndGet();
+        }
+        ClusterProtocol.send(out, ClusterProtocol.frame(ClusterProtocol.COMPLETE, 8).putLong(leaseId));
+        games.incrementAndGet();
+    }
+    
+    // Uso: AnalysisWorker <host:porta> [-threads N] [-name nome]
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1 || args[0].lastIndexOf(':') < 0) {
+            System.err.println("Uso: AnalysisWorker <host:porta> [-threads N] [-name nome]");
+            System.exit(2);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        String name = "worker";
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-name") && i + 1 < args.length) {
+                name = args[++i];
+            } else {
+                System.err.println("Opção desconhecida: " + args[i]);
+                System.exit(2);
+            }
+        }
+        int colon = args[0].lastIndexOf(':');
+        new AnalysisWorker(args[0].substring(0, colon), Integer.parseInt(args[0].substring(colon + 1)), name).run(threads);
+    }
+}
@@ -0,0 +1,70 @@
+package application.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Protocolo entre coordenador e workers de análise, sobre TCP. Cada conexão é síncrona: o worker
+// pede trabalho e o coordenador só responde a pedidos, então nunca há frames cruzados.
+//
+// Frame: tamanho (int, sem contar este campo), tipo (byte) e dados:
+//   HELLO    (worker):      versão (int), nome (short + UTF-8)
+//   REQUEST  (worker):      sem dados
+//   LEASE    (coordenador): lease (long), profundidade (byte), ms por posição (int),
+//                           nº de lances (short) e os lances ChessMove (short cada)
+//   WAIT     (coordenador): ms até pedir de novo (int); há leases em andamento que podem voltar
+//   DONE     (coordenador): sem dados; não há mais trabalho
+//   RESULT   (worker):      lease (long), ply (short), melhor lance (short), pontuação (int),
+//                           profundidade (byte); também renova o lease
+//   COMPLETE (worker):      lease (long); todos os plies foram enviados
+final class ClusterProtocol {
+    
+    static final int VERSION = 1;
+    static final int MAX_FRAME = 1 << 20;
+    
+    static final byte HELLO = 1;
+    static final byte REQUEST = 2;
+    static final byte LEASE = 3;
+    static final byte WAIT = 4;
+    static final byte DONE = 5;
+    static final byte RESULT = 6;
+    static final byte COMPLETE = 7;
+    
+    private ClusterProtocol() {
+    }
+    
+    // Frame vazio do tipo dado, com espaço para `size` bytes de dados; o tamanho é gravado em send()
+    static ByteBuffer frame(byte type, int size) {
+        ByteBuffer frame = ByteBuffer.allocate(4 + 1 + size);
+        frame.putInt(0).put(type);
+        return frame;
+    }
+    
+    static void send(DataOutputStream out, ByteBuffer frame) throws IOException {
+        frame.putInt(0, frame.position() - 4);
+        out.write(frame.array(), 0, frame.position());
+        out.flush();
+    }
+    
+    // Próximo frame a partir do tipo (o campo de tamanho já foi consumido)
+    static ByteBuffer receive(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME) {
+            throw new IOException("Frame com tamanho inválido: " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return ByteBuffer.wrap(data);
+    }
+    
+    static void putString(ByteBuffer frame, byte[] utf8) {
+        frame.putShort((short) utf8.length).put(utf8);
+    }
+    
+    static byte[] getString(ByteBuffer frame) {
+        byte[] utf8 = new byte[Short.toUnsignedInt(frame.getShort())];
+        frame.get(utf8);
+        return utf8;
+    }
+}
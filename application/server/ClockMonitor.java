@@ -0,0 +1,105 @@
+package application.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import chesslayer.ChessClock;
+import chesslayer.ChessMatch;
+import chesslayer.Color;
+import chesslayer.MoveListener;
+import chesslayer.PositionSnapshot;
+
+// Detecta a queda de bandeira de muitas partidas com uma única TimerWheel: cada partida tem no
+// máximo um temporizador, reagendado a cada lance para o prazo do jogador da vez.
+// Os relógios devem usar System.nanoTime() (o construtor padrão de ChessClock).
+public class ClockMonitor {
+    
+    // Chamado na thread da roda; a partida pertence a outra thread, então só o relógio deve ser consultado
+    public interface FlagListener {
+        void flagFell(int gameId, ChessMatch match, Color player);
+    }
+    
+    private final TimerWheel wheel;
+    private final FlagListener flagListener;
+    private final Map<Integer, Game> games = new ConcurrentHashMap<>();
+    
+    public ClockMonitor(TimerWheel wheel, FlagListener flagListener) {
+        this.wheel = wheel;
+        this.flagListener = flagListener;
+    }
+    
+    public void watch(int gameId, ChessMatch match) {
+        if (match.getClock() == null) {
+            throw new IllegalArgumentException("Partida sem relógio: " + gameId);
+        }
+        Game game = new Game(gameId, match);
+        games.put(gameId, game);
+        match.addMoveListener(game);
+        game.reschedule();
+    }
+    
+    public void unwatch(int gameId, ChessMatch match) {
+        Game game = games.remove(gameId);
+        if (game != null) {
+            match.removeMoveListener(game);
+            game.cancel();
+        }
+    }
+    
+    public int getWatchedCount() {
+        return games.size();
+    }
+    
+    private class Game implements MoveListener {
+        
+        private final int gameId;
+        private final ChessMatch match;
+        private final ChessClock clock;
+        private TimerWheel.Timeout timeout;
+        
+        Game(int gameId, ChessMatch match) {
+            this.gameId = gameId;
+            this.match = match;
+            this.clock = match.getClock();
+        }
+        
+        @Override
+        public void moveMade(ChessMatch m, int ply, int move, PositionSnapshot snapshot) {
+            reschedule();
+        }
+        
+        @Override
+        public void moveTakenBack(ChessMatch m, int ply, PositionSnapshot snapshot) {
+            reschedule();
+        }
+        
+        synchronized void reschedule() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+            long deadline = clock.getDeadlineNanos();
+            if (deadline != Long.MAX_VALUE && games.get(gameId) == this) {
+                timeout = wheel.schedule(deadline, this::expired);
+            }
+        }
+        
+        synchronized void cancel() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
+        
+        // O lance pode ter chegado junto com o prazo: confirma no relógio antes de anunciar
+        private void expired() {
+            Color flagged = clock.checkFlag();
+            if (flagged != null) {
+                games.remove(gameId, this);
+                flagListener.flagFell(gameId, match, flagged);
+            } else {
+                reschedule();
+            }
+        }
+    }
+}
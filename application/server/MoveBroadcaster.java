@@ -0,0 +1,263 @@
+package application.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import chesslayer.ChessMatch;
+import chesslayer.Color;
+import chesslayer.MoveListener;
+import chesslayer.PositionSnapshot;
+
+// Distribui os lances de partidas para muitos espectadores. A cada tick, os eventos de cada partida
+// viram um único frame serializado uma vez; cada espectador recebe uma visão (duplicate) do mesmo
+// buffer. Espectadores lentos não acumulam frames: passado o limite, recebem um snapshot ao se recuperarem.
+//
+// Frame: tamanho (int, sem contar este campo), partida (int), tipo (byte) e dados:
+//   MOVES:    nº de lances (short), para cada um: ply (short) e lance ChessMove (short)
+//   SNAPSHOT: ply (short), turno (int), jogador da vez (byte: 0 brancas, 1 pretas),
+//             64 códigos de peça (byte), status (byte), casa en passant (byte)
+public class MoveBroadcaster implements Closeable {
+    
+    public static final byte MOVES = 1;
+    public static final byte SNAPSHOT = 2;
+    
+    private final int maxPendingFrames;
+    private final Map<Integer, Game> games = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    
+    public MoveBroadcaster(long tickMillis, int maxPendingFrames) {
+        this.maxPendingFrames = maxPendingFrames;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "move-broadcaster");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    // Passa a transmitir os lances da partida com o identificador dado
+    public void watch(int gameId, ChessMatch match) {
+        if (!match.getVariant().isStandard()) {
+            throw new IllegalArgumentException("Só partidas de xadrez padrão podem ser transmitidas");
+        }
+        Game game = new Game(gameId, match.getSnapshot());
+        games.put(gameId, game);
+        match.addMoveListener(game);
+    }
+    
+    public void unwatch(int gameId, ChessMatch match) {
+        Game game = games.remove(gameId);
+        if (game != null) {
+            match.removeMoveListener(game);
+        }
+    }
+    
+    // O canal deve estar em modo não bloqueante para que um espectador lento não atrase os outros
+    public void subscribe(int gameId, WritableByteChannel channel) {
+        Game game = games.get(gameId);
+        if (game == null) {
+            throw new IllegalArgumentException("Partida não transmitida: " + gameId);
+        }
+        game.subscribers.add(new Subscriber(channel));
+    }
+    
+    public int getSubscriberCount(int gameId) {
+        Game game = games.get(gameId);
+        return game == null ? 0 : game.subscribers.size();
+    }
+    
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+    
+    // Executado pela thread do broadcaster a cada tick
+    void tick() {
+        for (Game game : games.values()) {
+            try {
+                game.tick();
+            } catch (RuntimeException e) {
+                // Um erro numa partida não interrompe as demais
+                System.err.println("Erro ao transmitir partida " + game.id + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    private static class Event {
+        
+        final int ply;
+        final int move;
+        
+        Event(int ply, int move) {
+            this.ply = ply;
+            this.move = move;
+        }
+    }
+    
+    private class Game implements MoveListener {
+        
+        final int id;
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        // Eventos, posição e resync mudam juntos sob o monitor do Game: o snapshot lido no tick
+        // corresponde exatamente aos eventos retirados da fila
+        final Queue<Event> events = new ArrayDeque<>();
+        PositionSnapshot latest;
+        // Um takeBack invalida os lances já enviados: todos recebem um snapshot
+        boolean resyncAll;
+        
+        Game(int id, PositionSnapshot latest) {
+            this.id = id;
+            this.latest = latest;
+        }
+        
+        @Override
+        public synchronized void moveMade(ChessMatch match, int ply, int move, PositionSnapshot snapshot) {
+            events.add(new Event(ply, move));
+            latest = snapshot;
+        }
+        
+        @Override
+        public synchronized void moveTakenBack(ChessMatch match, int ply, PositionSnapshot snapshot) {
+            latest = snapshot;
+            resyncAll = true;
+        }
+        
+        void tick() {
+            ByteBuffer moves = null;
+            List<Event> batch = new ArrayList<>();
+            PositionSnapshot snapshot;
+            boolean resync;
+            synchronized (this) {
+                Event event;
+                while ((event = events.poll()) != null) {
+                    batch.add(event);
+                }
+                snapshot = latest;
+                resync = resyncAll;
+                resyncAll = false;
+            }
+            if (resync) {
+                batch.clear();
+                for (Subscriber s : subscribers) {
+                    s.discardQueued();
+                    s.needsSnapshot = true;
+                }
+            }
+            if (!batch.isEmpty()) {
+                moves = encodeMoves(id, batch);
+            }
+            ByteBuffer snapshotFrame = null;
+            List<Subscriber> closed = null;
+            for (Subscriber s : subscribers) {
+                if (moves != null) {
+                    if (s.pending.size() >= maxPendingFrames) {
+                        // Back-pressure: descarta a fila e reenvia a posição inteira logo atrás do quadro
+                        // que já começou a ser escrito
+                        s.discardQueued();
+                        s.needsSnapshot = true;
+                    } else if (!s.needsSnapshot) {
+                        s.pending.add(moves.duplicate());
+                    }
+                }
+                // Com needsSnapshot a fila tem no máximo o quadro parcial mantido por discardQueued()
+                if (s.needsSnapshot) {
+                    if (snapshotFrame == null) {
+                        snapshotFrame = encodeSnapshot(id, snapshot);
+                    }
+                    s.pending.add(snapshotFrame.duplicate());
+                    s.needsSnapshot = false;
+                }
+                if (!s.flush()) {
+                    if (closed == null) {
+                        closed = new ArrayList<>();
+                    }
+                    closed.add(s);
+                }
+            }
+            if (closed != null) {
+                subscribers.removeAll(closed);
+            }
+        }
+    }
+    
+    private static class Subscriber {
+        
+        final WritableByteChannel channel;
+        final Queue<ByteBuffer> pending = new ArrayDeque<>();
+        boolean needsSnapshot = true;
+        
+        Subscriber(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+        
+        // Descarta os quadros enfileirados, exceto um que já foi escrito em parte: cortá-lo deixaria
+        // o próximo quadro no meio de um prefixo de tamanho e corromperia o fluxo do espectador
+        void discardQueued() {
+            ByteBuffer head = pending.peek();
+            pending.clear();
+            if (head != null && head.position() > 0) {
+                pending.add(head);
+            }
+        }
+        
+        // Escreve o que o canal aceitar sem bloquear; retorna false se o canal foi fechado
+        boolean flush() {
+            try {
+                ByteBuffer head;
+                while ((head = pending.peek()) != null) {
+                    channel.write(head);
+                    if (head.hasRemaining()) {
+                        return true;
+                    }
+                    pending.poll();
+                }
+                return true;
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // O canal já está inutilizável
+                }
+                return false;
+            }
+        }
+    }
+    
+    // Buffers somente leitura: as visões entregues aos espectadores não podem alterar o conteúdo
+    static ByteBuffer encodeMoves(int gameId, List<Event> batch) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 + 4 + 1 + 2 + batch.size() * 4);
+        buffer.putInt(buffer.capacity() - 4).putInt(gameId).put(MOVES).putShort((short) batch.size());
+        for (Event e : batch) {
+            buffer.putShort((short) e.ply).putShort((short) e.move);
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+    
+    static ByteBuffer encodeSnapshot(int gameId, PositionSnapshot snapshot) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 + 4 + 1 + 2 + 4 + 1 + 64 + 1 + 1);
+        buffer.putInt(buffer.capacity() - 4).putInt(gameId).put(SNAPSHOT);
+        buffer.putShort((short) snapshot.getPly()).putInt(snapshot.getTurn());
+        buffer.put((byte) (snapshot.getCurrentPlayer() == Color.WHITE ? 0 : 1));
+        for (int square = 0; square < 64; square++) {
+            buffer.put((byte) snapshot.pieceCode(square));
+        }
+        int status = (snapshot.isCheck() ? PositionSnapshot.CHECK : 0) | (snapshot.isCheckMate() ? PositionSnapshot.CHECKMATE : 0)
+                   | (snapshot.isStatusKnown() ? 0 : PositionSnapshot.STATUS_PENDING);
+        buffer.put((byte) status).put((byte) snapshot.getEnPassantSquare());
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,210 @@
+package application.server;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Roda de temporizadores hierárquica com tick de 1 ms, servida por uma única thread.
+// Quatro níveis de 256 posições cobrem 256 ms, 65 s, 4,6 h e 49 dias; um temporizador desce de nível
+// quando o nível de baixo completa uma volta. Agendar e cancelar custam O(1) e não criam threads.
+//
+// Agendamentos e cancelamentos feitos por outras threads passam por filas e são aplicados na
+// thread da roda; as tarefas também executam nela e devem ser curtas.
+public class TimerWheel implements Closeable {
+    
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private final Timeout[][] buckets = new Timeout[LEVELS][SLOTS];
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile boolean idle;
+    private long now;
+    private int size;
+    
+    public TimerWheel() {
+        thread = new Thread(this::run, "timer-wheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    // Temporizador agendado; cancel() pode ser chamado de qualquer thread
+    public final class Timeout {
+        
+        private final long deadline;
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(); // 0 pendente, 1 cancelado, 2 executado
+        private Timeout next;
+        private Timeout prev;
+        private int level = -1;
+        private int slot;
+        
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+        
+        public boolean cancel() {
+            if (!state.compareAndSet(0, 1)) {
+                return false;
+            }
+            cancelled.add(this);
+            return true;
+        }
+        
+        public boolean isExpired() {
+            return state.get() == 2;
+        }
+    }
+    
+    // deadlineNanos na escala de System.nanoTime(); prazos já vencidos executam no próximo tick
+    public Timeout schedule(long deadlineNanos, Runnable task) {
+        if (closed) {
+            throw new IllegalStateException("Roda de temporizadores encerrada");
+        }
+        // Arredonda para cima: nunca dispara antes do prazo
+        long elapsed = deadlineNanos - startNanos;
+        long tick = elapsed <= 0 ? 0 : (elapsed + TICK_NANOS - 1) / TICK_NANOS;
+        Timeout timeout = new Timeout(tick, task);
+        scheduled.add(timeout);
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+        return timeout;
+    }
+    
+    public Timeout scheduleAfter(long delayMillis, Runnable task) {
+        return schedule(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis), task);
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+    
+    private void run() {
+        while (!closed) {
+            drainQueues();
+            long current = (System.nanoTime() - startNanos) / TICK_NANOS;
+            if (size == 0) {
+                // Sem temporizadores não há o que percorrer: salta direto para o tick atual
+                now = Math.max(now, current);
+                idle = true;
+                if (scheduled.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+            while (now < current) {
+                now++;
+                advance();
+                drainQueues();
+            }
+            long nextTick = startNanos + (now + 1) * TICK_NANOS;
+            LockSupport.parkNanos(this, nextTick - System.nanoTime());
+        }
+    }
+    
+    private void drainQueues() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.level >= 0) {
+                unlink(timeout);
+            }
+        }
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state.get() == 0) {
+                // A posição do tick atual já foi executada: o mais cedo possível é o próximo tick
+                insert(timeout, now + 1);
+            }
+        }
+    }
+    
+    // Ao completar uma volta do nível 0, desce os níveis superiores (o mais alto primeiro)
+    // e então executa a posição atual
+    private void advance() {
+        if ((now & MASK) == 0) {
+            int top = 1;
+            while (top < LEVELS - 1 && ((now >>> (SLOT_BITS * top)) & MASK) == 0) {
+                top++;
+            }
+            for (int level = top; level >= 1; level--) {
+                cascade(level);
+            }
+        }
+        Timeout timeout = buckets[0][(int) (now & MASK)];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            unlink(timeout);
+            if (timeout.deadline > now) {
+                insert(timeout, now);
+            } else if (timeout.state.compareAndSet(0, 2)) {
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Erro em temporizador: " + e);
+                }
+            }
+            timeout = next;
+        }
+    }
+    
+    private void cascade(int level) {
+        int slot = (int) ((now >>> (SLOT_BITS * level)) & MASK);
+        Timeout timeout = buckets[level][slot];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            unlink(timeout);
+            insert(timeout, now);
+            timeout = next;
+        }
+    }
+    
+    // earliest = primeiro tick cuja posição ainda será executada
+    private void insert(Timeout timeout, long earliest) {
+        long deadline = Math.max(timeout.deadline, earliest);
+        long delta = Math.min(deadline - now, MAX_DELTA);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        long position = level == LEVELS - 1 && delta == MAX_DELTA ? now + MAX_DELTA : deadline;
+        int slot = (int) ((position >>> (SLOT_BITS * level)) & MASK);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = buckets[level][slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[level][slot] = timeout;
+        size++;
+    }
+    
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.next = null;
+        timeout.prev = null;
+        timeout.level = -1;
+        size--;
+    }
+}
@@ -0,0 +1,54 @@
+package application.server;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Verifica o atraso dos disparos da TimerWheel, com a roda ociosa e com a roda girando: prazos
+// vencidos, no tick atual e futuros (inclusive além da primeira volta do nível 0).
+// Termina com código 1 se algum disparo atrasar mais que a tolerância
+public class TimerWheelCheck {
+
+    private static final long TOLERANCE_MILLIS = 20;
+    private static final long[] DELAYS_MILLIS = {-50, -1, 0, 1, 5, 50, 300};
+
+    public static void main(String[] args) throws InterruptedException {
+        boolean ok = true;
+        try (TimerWheel wheel = new TimerWheel()) {
+            ok &= check(wheel, "ociosa");
+            // Um temporizador distante mantém a roda percorrendo ticks
+            TimerWheel.Timeout keepAlive = wheel.scheduleAfter(60_000, () -> { });
+            Thread.sleep(10);
+            ok &= check(wheel, "girando");
+            keepAlive.cancel();
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean check(TimerWheel wheel, String label) throws InterruptedException {
+        boolean ok = true;
+        for (long delay : DELAYS_MILLIS) {
+            CountDownLatch fired = new CountDownLatch(1);
+            long scheduledAt = System.nanoTime();
+            long deadline = scheduledAt + TimeUnit.MILLISECONDS.toNanos(delay);
+            long[] firedAt = new long[1];
+            wheel.schedule(deadline, () -> {
+                firedAt[0] = System.nanoTime();
+                fired.countDown();
+            });
+            if (!fired.await(delay + 5_000, TimeUnit.MILLISECONDS)) {
+                System.out.printf(Locale.ROOT, "%s, prazo %+d ms: não disparou%n", label, delay);
+                ok = false;
+                continue;
+            }
+            // Prazos vencidos contam a partir do agendamento
+            long late = (firedAt[0] - Math.max(deadline, scheduledAt)) / 1_000_000L;
+            boolean pass = late <= TOLERANCE_MILLIS;
+            System.out.printf(Locale.ROOT, "%s, prazo %+d ms: atraso %d ms%s%n", label, delay, late, pass ? "" : " (FALHA)");
+            ok &= pass;
+        }
+        return ok;
+    }
+}
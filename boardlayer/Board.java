@@ -4,7 +4,8 @@ public class Board {
     
     private int rows;
     private int columns;
-    private Piece[][] pieces;
+    // Peças indexadas pela casa: square = row * columns + column
+    private Piece[] pieces;
     
     public Board(int rows, int columns) {
         if (rows < 1 || columns < 1) {
@@ -12,7 +13,7 @@ public class Board {
         }
         this.rows = rows;
         this.columns = columns;
-        pieces = new Piece[rows][columns];
+        pieces = new Piece[rows * columns];
     }
     
     public int getRows() {
@@ -23,38 +24,79 @@ public class Board {
         return columns;
     }
     
+    // Converte entre (linha, coluna) e índice inteiro da casa
+    public int square(int row, int column) {
+        return row * columns + column;
+    }
+    
+    public int square(Position position) {
+        return square(position.getRow(), position.getColumn());
+    }
+    
+    public int row(int square) {
+        return square / columns;
+    }
+    
+    public int column(int square) {
+        return square % columns;
+    }
+    
     public Piece piece(int row, int column) {
         if (!positionExists(row, column)) {
             throw new BoardException("Posição inexistente no tabuleiro");
         }
-        return pieces[row][column];
+        return pieces[square(row, column)];
     }
     
     public Piece piece(Position position) {
         if (!positionExists(position)) {
             throw new BoardException("Posição inexistente no tabuleiro");
         }
-        return pieces[position.getRow()][position.getColumn()];
+        return pieces[square(position)];
+    }
+    
+    public Piece piece(int square) {
+        if (!squareExists(square)) {
+            throw new BoardException("Posição inexistente no tabuleiro");
+        }
+        return pieces[square];
     }
     
     public void placePiece(Piece piece, Position position) {
         if (thereIsAPiece(position)) {
             throw new BoardException("Já existe uma peça na posição " + position);
         }
-        pieces[position.getRow()][position.getColumn()] = piece;
-        piece.position = position;
+        placePiece(piece, square(position));
+    }
+    
+    public void placePiece(Piece piece, int square) {
+        if (!squareExists(square)) {
+            throw new BoardException("Posição inexistente no tabuleiro");
+        }
+        if (pieces[square] != null) {
+            throw new BoardException("Já existe uma peça na posição " + row(square) + ", " + column(square));
+        }
+        pieces[square] = piece;
+        piece.moveTo(square, row(square), column(square));
     }
     
     public Piece removePiece(Position position) {
         if (!positionExists(position)) {
             throw new BoardException("Posição inexistente no tabuleiro");
         }
-        if (piece(position) == null) {
+        return removePiece(square(position));
+    }
+    
+    public Piece removePiece(int square) {
+        if (!squareExists(square)) {
+            throw new BoardException("Posição inexistente no tabuleiro");
+        }
+        Piece aux = pieces[square];
+        if (aux == null) {
             return null;
         }
-        Piece aux = piece(position);
-        aux.position = null;
-        pieces[position.getRow()][position.getColumn()] = null;
+        aux.removeFromBoard();
+        pieces[square] = null;
         return aux;
     }
     
@@ -66,10 +108,18 @@ public class Board {
         return positionExists(position.getRow(), position.getColumn());
     }
     
+    public boolean squareExists(int square) {
+        return square >= 0 && square < pieces.length;
+    }
+    
     public boolean thereIsAPiece(Position position) {
         if (!positionExists(position)) {
             throw new BoardException("Posição inexistente no tabuleiro");
         }
         return piece(position) != null;
     }
+    
+    public boolean thereIsAPiece(int square) {
+        return piece(square) != null;
+    }
 }
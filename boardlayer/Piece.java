@@ -4,6 +4,9 @@ public abstract class Piece {
     
     protected Position position;
     private Board board;
+    // Casa atual (-1 fora do tabuleiro) e objeto Position reaproveitado entre movimentos
+    private int square = -1;
+    private Position ownPosition;
     
     public Piece(Board board) {
         this.board = board;
@@ -14,6 +17,25 @@ public abstract class Piece {
         return board;
     }
     
+    public int getSquare() {
+        return square;
+    }
+    
+    void moveTo(int square, int row, int column) {
+        this.square = square;
+        if (ownPosition == null) {
+            ownPosition = new Position(row, column);
+        } else {
+            ownPosition.setValues(row, column);
+        }
+        position = ownPosition;
+    }
+    
+    void removeFromBoard() {
+        square = -1;
+        position = null;
+    }
+    
     // Retorna matriz de movimentos possíveis
     public abstract boolean[][] possibleMoves();
     
@@ -26,7 +48,7 @@ public abstract class Piece {
     public boolean isThereAnyPossibleMove() {
         boolean[][] mat = possibleMoves();
         for (int i = 0; i < mat.length; i++) {
-            for (int j = 0; j < mat.length; j++) {
+            for (int j = 0; j < mat[i].length; j++) {
                 if (mat[i][j]) {
                     return true;
                 }
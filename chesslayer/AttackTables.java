@@ -0,0 +1,105 @@
+package chesslayer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tabelas de ataque de um tamanho de tabuleiro como conjuntos de bits largos: cada casa ocupa
+// `words` longs seguidos (1 no 8x8, 2 até 128 casas, 4 até 256 = 16x16), com o bit da casa
+// row * columns + column. O 8x8 usa as tabelas de PrecomputedTables; os demais são calculados
+// uma vez por tamanho e compartilhados entre as partidas
+final class AttackTables {
+
+    private static final Map<Integer, AttackTables> CACHE = new ConcurrentHashMap<>();
+
+    // Direções na ordem de PrecomputedTables: as quatro primeiras aumentam o índice da casa
+    private static final int[] ROW_STEP = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] COLUMN_STEP = {1, 0, 1, -1, -1, 0, -1, 1};
+    private static final int[][] KNIGHT_STEPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+
+    final int rows;
+    final int columns;
+    final int words;
+    final long[] knight;
+    final long[] king;
+    // pawn[0] = casas atacadas por peão branco, pawn[1] = por peão preto
+    final long[][] pawn;
+    final long[][] rays;
+
+    private AttackTables(int rows, int columns, long[] knight, long[] king, long[][] pawn, long[][] rays) {
+        this.rows = rows;
+        this.columns = columns;
+        this.words = (rows * columns + 63) / 64;
+        this.knight = knight;
+        this.king = king;
+        this.pawn = pawn;
+        this.rays = rays;
+    }
+
+    static AttackTables of(int rows, int columns) {
+        AttackTables tables = CACHE.get(rows * 32 + columns);
+        if (tables == null) {
+            if (rows == 8 && columns == 8) {
+                tables = new AttackTables(8, 8, PrecomputedTables.KNIGHT, PrecomputedTables.KING,
+                                          PrecomputedTables.PAWN, PrecomputedTables.RAYS);
+            } else {
+                tables = compute(rows, columns);
+            }
+            AttackTables previous = CACHE.putIfAbsent(rows * 32 + columns, tables);
+            if (previous != null) {
+                tables = previous;
+            }
+        }
+        return tables;
+    }
+
+    static boolean increasing(int direction) {
+        return direction < 4;
+    }
+
+    // Diagonais (2, 3, 6, 7) ou linhas e colunas (0, 1, 4, 5)
+    static boolean diagonal(int direction) {
+        return direction % 4 >= 2;
+    }
+
+    static AttackTables compute(int rows, int columns) {
+        int squares = rows * columns;
+        int words = (squares + 63) / 64;
+        long[] knight = new long[squares * words];
+        long[] king = new long[squares * words];
+        long[][] pawn = new long[2][squares * words];
+        long[][] rays = new long[8][squares * words];
+        for (int square = 0; square < squares; square++) {
+            int row = square / columns;
+            int column = square % columns;
+            int base = square * words;
+            for (int[] step : KNIGHT_STEPS) {
+                set(knight, base, rows, columns, row + step[0], column + step[1]);
+            }
+            for (int direction = 0; direction < 8; direction++) {
+                set(king, base, rows, columns, row + ROW_STEP[direction], column + COLUMN_STEP[direction]);
+                int r = row + ROW_STEP[direction];
+                int c = column + COLUMN_STEP[direction];
+                while (set(rays[direction], base, rows, columns, r, c)) {
+                    r += ROW_STEP[direction];
+                    c += COLUMN_STEP[direction];
+                }
+            }
+            // Linha 0 é a última fileira: o peão branco avança para linhas menores
+            set(pawn[0], base, rows, columns, row - 1, column - 1);
+            set(pawn[0], base, rows, columns, row - 1, column + 1);
+            set(pawn[1], base, rows, columns, row + 1, column - 1);
+            set(pawn[1], base, rows, columns, row + 1, column + 1);
+        }
+        return new AttackTables(rows, columns, knight, king, pawn, rays);
+    }
+
+    // Marca a casa (row, column), se existir, no conjunto que começa em base
+    private static boolean set(long[] table, int base, int rows, int columns, int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            return false;
+        }
+        int square = row * columns + column;
+        table[base + (square >>> 6)] |= 1L << square;
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+package chesslayer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento JFR de um teste de xeque-mate (o teste mais caro do motor de regras). Desligado por padrão
+@Name("chesslayer.CheckMateTest")
+@Label("Teste de xeque-mate")
+@Category("Xadrez")
+@Enabled(false)
+@StackTrace(false)
+class CheckMateTestEvent extends jdk.jfr.Event {
+    
+    @Label("Cor")
+    String color;
+    
+    @Label("Xeque-mate")
+    boolean checkMate;
+}
@@ -0,0 +1,115 @@
+package chesslayer;
+
+import java.util.function.LongSupplier;
+
+// Relógio de xadrez: tempo base por jogador, incremento (Fischer) somado após cada lance e
+// atraso (delay simples) descontado antes de o tempo começar a correr.
+// O relógio é acionado pela partida (ChessMatch.nextTurn) e pode ser consultado por outra thread.
+public class ChessClock {
+    
+    private final long incrementNanos;
+    private final long delayNanos;
+    private final LongSupplier nanoTime;
+    private final long[] remaining = new long[2];
+    private Color running;
+    private long turnStart;
+    private Color flagged;
+    
+    public ChessClock(long baseMillis, long incrementMillis, long delayMillis) {
+        this(baseMillis, incrementMillis, delayMillis, System::nanoTime);
+    }
+    
+    // nanoTime permite um relógio controlado (simulações, replays)
+    public ChessClock(long baseMillis, long incrementMillis, long delayMillis, LongSupplier nanoTime) {
+        if (baseMillis <= 0 || incrementMillis < 0 || delayMillis < 0) {
+            throw new IllegalArgumentException("Tempo inválido para o relógio");
+        }
+        this.incrementNanos = incrementMillis * 1_000_000L;
+        this.delayNanos = delayMillis * 1_000_000L;
+        this.nanoTime = nanoTime;
+        remaining[0] = baseMillis * 1_000_000L;
+        remaining[1] = remaining[0];
+    }
+    
+    // Começa a contar o tempo do jogador dado
+    public synchronized void start(Color player) {
+        running = player;
+        turnStart = nanoTime.getAsLong();
+    }
+    
+    // Encerra a vez do jogador: desconta o tempo gasto (menos o atraso), soma o incremento
+    // e passa a contar para o adversário. Retorna false se o tempo do jogador tinha acabado.
+    public synchronized boolean punch(Color player) {
+        if (flagged != null) {
+            return false;
+        }
+        if (running != player) {
+            return true;
+        }
+        long now = nanoTime.getAsLong();
+        int index = index(player);
+        remaining[index] -= Math.max(0, now - turnStart - delayNanos);
+        if (remaining[index] <= 0) {
+            remaining[index] = 0;
+            flagged = player;
+            running = null;
+            return false;
+        }
+        remaining[index] += incrementNanos;
+        running = opponent(player);
+        turnStart = now;
+        return true;
+    }
+    
+    public synchronized void stop() {
+        if (running != null) {
+            int index = index(running);
+            remaining[index] -= Math.max(0, nanoTime.getAsLong() - turnStart - delayNanos);
+            remaining[index] = Math.max(0, remaining[index]);
+            running = null;
+        }
+    }
+    
+    // Tempo restante em milissegundos, incluindo o da vez em andamento
+    public synchronized long getRemainingMillis(Color player) {
+        long left = remaining[index(player)];
+        if (player == running) {
+            left -= Math.max(0, nanoTime.getAsLong() - turnStart - delayNanos);
+        }
+        return Math.max(0, left) / 1_000_000L;
+    }
+    
+    // Instante (na escala de nanoTime) em que o jogador da vez perde por tempo; Long.MAX_VALUE se parado
+    public synchronized long getDeadlineNanos() {
+        if (running == null) {
+            return Long.MAX_VALUE;
+        }
+        return turnStart + delayNanos + remaining[index(running)];
+    }
+    
+    // Marca a queda de bandeira se o prazo passou; retorna o jogador que perdeu por tempo (ou null)
+    public synchronized Color checkFlag() {
+        if (flagged == null && running != null && nanoTime.getAsLong() - getDeadlineNanos() >= 0) {
+            remaining[index(running)] = 0;
+            flagged = running;
+            running = null;
+        }
+        return flagged;
+    }
+    
+    public synchronized Color getFlagged() {
+        return flagged;
+    }
+    
+    public synchronized Color getRunning() {
+        return running;
+    }
+    
+    private static int index(Color color) {
+        return color == Color.WHITE ? 0 : 1;
+    }
+    
+    private static Color opponent(Color color) {
+        return color == Color.WHITE ? Color.BLACK : Color.WHITE;
+    }
+}
@@ -1,13 +1,15 @@
 package chesslayer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import boardlayer.Board;
 import boardlayer.Piece;
-import boardlayer.Position;
+import chesslayer.pieces.Archbishop;
 import chesslayer.pieces.Bishop;
+import chesslayer.pieces.Chancellor;
 import chesslayer.pieces.King;
 import chesslayer.pieces.Knight;
 import chesslayer.pieces.Pawn;
@@ -16,6 +18,12 @@ import chesslayer.pieces.Rook;
 
 public class ChessMatch {
     
+    private final Variant variant;
+    private final Zobrist zobrist;
+    private final AttackTables attackTables;
+    // Casas (linha, coluna) das torres de cada direito de roque, na ordem usada por Zobrist
+    private final int[][] castlingRooks;
+    
     private int turn;
     private Color currentPlayer;
     private Board board;
@@ -23,16 +31,64 @@ public class ChessMatch {
     private boolean checkMate;
     private ChessPiece enPassantVulnerable;
     private ChessPiece promoted;
+    private ChessPiece lastCapturedPiece;
     
     private List<Piece> piecesOnTheBoard = new ArrayList<>();
     private List<Piece> capturedPieces = new ArrayList<>();
-    private List<String> moveHistory = new ArrayList<>();
+    private MoveHistory moveHistory;
+    
+    // Estados adiados pelo caminho rápido (applyMoves/applyUci), calculados sob demanda
+    private boolean checkPending;
+    private boolean checkMatePending;
+    
+    // Cache de movimentos possíveis do turno atual (conjuntos de bits das AttackTables), indexado pela casa de origem
+    private long[][] possibleMovesCache;
+    // Casas ocupadas por cada cor (0 = brancas, 1 = pretas) na posição do turno, calculadas sob demanda
+    private long[][] occupancyCache;
+    private long positionHash;
+    private boolean positionHashValid;
+    
+    // Lances desde a última captura ou movimento de peão (regra dos 50 lances)
+    private int halfmoveClock;
+    
+    // Pilha de desfazer em vetores paralelos, um registro por lance:
+    // undoState = lance (20 bits) | casa en passant anterior + 1 (9 bits) | xeque anterior (1 bit)
+    private int[] undoState = new int[64];
+    private int[] undoHalfmoveClock = new int[64];
+    private long[] undoHash = new long[64];
+    private Piece[] undoCaptured = new Piece[64];
+    private Piece[] undoPromotedPawn = new Piece[64];
+    private int undoCount;
+    // Lances desfeitos que ainda podem ser refeitos (topo = próximo redo)
+    private int[] redoMoves = new int[64];
+    private int redoCount;
+    
+    // Última posição publicada para leitores em outras threads
+    private volatile PositionSnapshot snapshot;
+    private List<MoveListener> listeners = new CopyOnWriteArrayList<>();
+    private ChessClock clock;
     
     public ChessMatch() {
-        board = new Board(8, 8);
+        this(Variant.STANDARD);
+    }
+    
+    public ChessMatch(Variant variant) {
+        this.variant = variant;
+        board = new Board(variant.getRows(), variant.getColumns());
+        zobrist = Zobrist.of(variant.getRows(), variant.getColumns());
+        attackTables = AttackTables.of(variant.getRows(), variant.getColumns());
+        int last = variant.getColumns() - 1;
+        castlingRooks = new int[][] { { variant.getRows() - 1, last }, { variant.getRows() - 1, 0 }, { 0, last }, { 0, 0 } };
+        moveHistory = new MoveHistory(variant);
         turn = 1;
         currentPlayer = Color.WHITE;
+        possibleMovesCache = new long[board.getRows() * board.getColumns()][];
         initialSetup();
+        publishSnapshot();
+    }
+    
+    public Variant getVariant() {
+        return variant;
     }
     
     public int getTurn() {
@@ -43,11 +99,47 @@ public class ChessMatch {
         return currentPlayer;
     }
     
+    public ChessClock getClock() {
+        return clock;
+    }
+    
+    // Associa um relógio à partida e começa a contar o tempo do jogador da vez
+    public void setClock(ChessClock clock) {
+        this.clock = clock;
+        if (clock != null) {
+            clock.start(currentPlayer);
+        }
+    }
+    
+    // Jogador que perdeu por tempo, ou null
+    public Color getTimeOut() {
+        return clock == null ? null : clock.checkFlag();
+    }
+    
     public boolean getCheck() {
+        if (checkPending) {
+            checkPending = false;
+            check = testCheck(currentPlayer);
+            publishSnapshot();
+        }
         return check;
     }
     
     public boolean getCheckMate() {
+        if (checkMatePending) {
+            checkMatePending = false;
+            if (getCheck() && testCheckMate(currentPlayer)) {
+                // Deixa a partida no mesmo estado que performChessMove deixaria após o mate
+                checkMate = true;
+                turn--;
+                currentPlayer = opponent(currentPlayer);
+                invalidateCaches();
+                if (clock != null) {
+                    clock.stop();
+                }
+            }
+            publishSnapshot();
+        }
         return checkMate;
     }
     
@@ -59,10 +151,186 @@ public class ChessMatch {
         return promoted;
     }
     
+    // Peça capturada pelo último tryChessMove/performChessMove bem-sucedido
+    public ChessPiece getLastCapturedPiece() {
+        return lastCapturedPiece;
+    }
+    
+    // Histórico em SAN; cada lance é convertido apenas quando consultado
     public List<String> getMoveHistory() {
         return moveHistory;
     }
     
+    // Lances jogados, codificados com ChessMove
+    public int[] getMoves() {
+        return moveHistory.moves();
+    }
+    
+    // Hash de Zobrist da posição: peças, jogador da vez, direitos de roque e en passant.
+    // Resolve antes um xeque-mate pendente, que devolve a vez ao vencedor
+    public long getPositionHash() {
+        getCheckMate();
+        return currentPositionHash();
+    }
+    
+    private long currentPositionHash() {
+        if (!positionHashValid) {
+            positionHash = computePositionHash();
+            positionHashValid = true;
+        }
+        return positionHash;
+    }
+    
+    // Posição publicada após o último lance, com o xeque-mate pendente já resolvido. A thread da partida
+    // usa este método; as demais leem os snapshots entregues aos MoveListener, seguros em qualquer thread
+    public PositionSnapshot getSnapshot() {
+        getCheckMate();
+        return snapshot;
+    }
+    
+    public void addMoveListener(MoveListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeMoveListener(MoveListener listener) {
+        listeners.remove(listener);
+    }
+    
+    private void fireMoveMade() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        int ply = moveHistory.size();
+        for (MoveListener listener : listeners) {
+            listener.moveMade(this, ply, moveHistory.move(ply - 1), snapshot);
+        }
+    }
+    
+    // Monta a cópia compacta da posição e a publica pela referência volatile
+    private void publishSnapshot() {
+        int squares = board.getRows() * board.getColumns();
+        byte[] codes = new byte[squares];
+        for (int i = 0; i < squares; i++) {
+            codes[i] = PositionSnapshot.code((ChessPiece) board.piece(i));
+        }
+        int status = (check ? PositionSnapshot.CHECK : 0) | (checkMate ? PositionSnapshot.CHECKMATE : 0)
+                   | (checkPending || checkMatePending ? PositionSnapshot.STATUS_PENDING : 0);
+        int ply = moveHistory.size();
+        snapshot = new PositionSnapshot(codes, board.getColumns(), turn, ply, currentPlayer, status,
+                                        enPassantVulnerable != null ? enPassantVulnerable.getSquare() : -1,
+                                        ply > 0 ? moveHistory.move(ply - 1) : -1, currentPositionHash());
+    }
+    
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+    
+    private long computePositionHash() {
+        long hash = 0;
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getColumns(); j++) {
+                ChessPiece p = (ChessPiece) board.piece(i, j);
+                if (p != null) {
+                    hash ^= zobrist.piece(p, board.square(i, j));
+                }
+            }
+        }
+        if (currentPlayer == Color.BLACK) {
+            hash ^= zobrist.blackToMove;
+        }
+        for (int right = 0; right < castlingRooks.length; right++) {
+            if (canCastle(castlingRooks[right][0], castlingRooks[right][1])) {
+                hash ^= zobrist.castling(right);
+            }
+        }
+        // En passant só diferencia posições quando há peão adversário ao lado para capturar
+        if (enPassantVulnerable != null) {
+            int row = board.row(enPassantVulnerable.getSquare());
+            int column = board.column(enPassantVulnerable.getSquare());
+            if (isPawnOf(currentPlayer, row, column - 1) || isPawnOf(currentPlayer, row, column + 1)) {
+                hash ^= zobrist.enPassant(column);
+            }
+        }
+        return hash;
+    }
+    
+    // Posição em FEN (peças, jogador da vez, roques, en passant, contador de 50 lances e número do lance)
+    public String toFen() {
+        getCheckMate();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < board.getRows(); i++) {
+            int empty = 0;
+            for (int j = 0; j < board.getColumns(); j++) {
+                ChessPiece p = (ChessPiece) board.piece(i, j);
+                if (p == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char symbol = p.toString().charAt(0);
+                sb.append(p.getColor() == Color.WHITE ? symbol : Character.toLowerCase(symbol));
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (i < board.getRows() - 1) {
+                sb.append('/');
+            }
+        }
+        sb.append(currentPlayer == Color.WHITE ? " w " : " b ");
+        int length = sb.length();
+        for (int right = 0; right < castlingRooks.length; right++) {
+            if (canCastle(castlingRooks[right][0], castlingRooks[right][1])) {
+                sb.append("KQkq".charAt(right));
+            }
+        }
+        if (sb.length() == length) {
+            sb.append('-');
+        }
+        sb.append(' ');
+        if (enPassantVulnerable != null) {
+            // Casa atrás do peão que avançou duas casas
+            int row = board.row(enPassantVulnerable.getSquare());
+            sb.append(toChessPosition(board.square(enPassantVulnerable.getColor() == Color.WHITE ? row + 1 : row - 1, 
+                                                  board.column(enPassantVulnerable.getSquare()))));
+        } else {
+            sb.append('-');
+        }
+        sb.append(' ').append(halfmoveClock).append(' ').append((turn + 1) / 2);
+        return sb.toString();
+    }
+    
+    private boolean isPawnOf(Color color, int row, int column) {
+        if (column < 0 || column >= board.getColumns()) {
+            return false;
+        }
+        ChessPiece p = (ChessPiece) board.piece(row, column);
+        return p instanceof Pawn && p.getColor() == color;
+    }
+    
+    // Rei e torre da casa indicada ainda não se moveram e o rei andaria pelo menos duas casas até o destino do roque
+    private boolean canCastle(int row, int rookColumn) {
+        ChessPiece king = (ChessPiece) board.piece(row, variant.getKingColumn());
+        ChessPiece rook = (ChessPiece) board.piece(row, rookColumn);
+        int distance = castlingKingColumn(rookColumn) - variant.getKingColumn();
+        return king instanceof King && king.getMoveCount() == 0 && (rookColumn == 0 ? -distance : distance) >= 2
+            && rook instanceof Rook && rook.getMoveCount() == 0 && rook.getColor() == king.getColor();
+    }
+    
+    // Destino do rei no roque: penúltima coluna no pequeno e terceira no grande (g/c no 8x8, i/c no 10x8);
+    // a torre para ao lado dele, na coluna por onde ele passou
+    private int castlingKingColumn(int rookColumn) {
+        return rookColumn == 0 ? 2 : board.getColumns() - 2;
+    }
+    
+    // O rei só anda mais de uma coluna no roque
+    private boolean isCastling(ChessPiece piece, int source, int target) {
+        return piece instanceof King && Math.abs(board.column(target) - board.column(source)) >= 2;
+    }
+    
     // Retorna matriz de peças para a interface
     public ChessPiece[][] getPieces() {
         ChessPiece[][] mat = new ChessPiece[board.getRows()][board.getColumns()];
@@ -76,76 +344,566 @@ public class ChessMatch {
     
     // Retorna movimentos possíveis para uma posição (para colorir no UI)
     public boolean[][] possibleMoves(ChessPosition sourcePosition) {
-        Position position = sourcePosition.toPosition();
-        validateSourcePosition(position);
-        return board.piece(position).possibleMoves();
+        int square = toSquare(sourcePosition);
+        MoveResult result = square < 0 ? MoveResult.INVALID_FORMAT : checkSource(square);
+        if (result != MoveResult.OK) {
+            throw new ChessException(result.getMessage(variant));
+        }
+        long[] moves = cachedPossibleMoves(square);
+        boolean[][] mat = new boolean[board.getRows()][board.getColumns()];
+        for (int target = nextSquare(moves, 0); target >= 0; target = nextSquare(moves, target + 1)) {
+            mat[board.row(target)][board.column(target)] = true;
+        }
+        return mat;
     }
     
-    public ChessPiece performChessMove(ChessPosition sourcePosition, ChessPosition targetPosition) {
-        Position source = sourcePosition.toPosition();
-        Position target = targetPosition.toPosition();
-        validateSourcePosition(source);
-        validateTargetPosition(source, target);
+    // Lista os lances legais do jogador da vez, ordenados por origem, destino e promoção
+    public int[] legalMoves() {
+        return generateMoves(false);
+    }
+    
+    // Apenas as capturas legais (inclusive en passant) e promoções, na mesma ordem de legalMoves();
+    // a legalidade só é testada para esses lances, o que torna a busca de quiescência bem mais barata
+    public int[] captureMoves() {
+        return generateMoves(true);
+    }
+    
+    private int[] generateMoves(boolean capturesOnly) {
+        // Após o mate a vez volta ao vencedor, que não joga mais
+        if (checkMate) {
+            return new int[0];
+        }
+        getCheck();
+        int[] list = new int[256];
+        int[] promotions = variant.promotions();
+        int count = 0;
+        int squares = board.getRows() * board.getColumns();
+        for (int source = 0; source < squares; source++) {
+            ChessPiece p = (ChessPiece) board.piece(source);
+            if (p == null || p.getColor() != currentPlayer) {
+                continue;
+            }
+            long[] moves = cachedPossibleMoves(source);
+            for (int target = nextSquare(moves, 0); target >= 0; target = nextSquare(moves, target + 1)) {
+                if (capturesOnly && !board.thereIsAPiece(target) && !(p instanceof Pawn 
+                    && (isLastRow(target) || board.column(target) != board.column(source)))) {
+                    continue;
+                }
+                Piece capturedPiece = makeMove(source, target);
+                boolean legal = !testCheck(currentPlayer);
+                undoMove(source, target, capturedPiece);
+                if (!legal) {
+                    continue;
+                }
+                int move = ChessMove.encode(source, target, ChessMove.NO_PROMOTION);
+                if (p instanceof Pawn && isLastRow(target)) {
+                    if (count + promotions.length > list.length) {
+                        list = Arrays.copyOf(list, list.length * 2);
+                    }
+                    for (int promotion : promotions) {
+                        list[count++] = move | (promotion << 12);
+                    }
+                } else {
+                    if (count == list.length) {
+                        list = Arrays.copyOf(list, list.length * 2);
+                    }
+                    list[count++] = move;
+                }
+            }
+        }
+        EngineMetrics.count(EngineMetrics.Counter.MOVES_GENERATED, count);
+        return Arrays.copyOf(list, count);
+    }
+    
+    // Consulta o cache do turno; calcula os movimentos da peça apenas na primeira consulta
+    private long[] cachedPossibleMoves(int square) {
+        long[] moves = possibleMovesCache[square];
+        if (moves == null) {
+            if (occupancyCache == null) {
+                occupancyCache = computeOccupancy();
+            }
+            moves = pseudoLegalMoves(square, occupancyCache, getCheck());
+            possibleMovesCache[square] = moves;
+        }
+        return moves;
+    }
+    
+    // Descarta os caches sempre que o tabuleiro ou o jogador da vez mudam
+    private void invalidateCaches() {
+        Arrays.fill(possibleMovesCache, null);
+        occupancyCache = null;
+        positionHashValid = false;
+    }
+    
+    private boolean isThereAnyPossibleMove(long[] moves) {
+        return nextSquare(moves, 0) >= 0;
+    }
+    
+    // Próxima casa do conjunto a partir de from (inclusive), ou -1
+    private int nextSquare(long[] set, int from) {
+        for (int word = from >>> 6; word < set.length; word++) {
+            long bits = word == from >>> 6 ? set[word] & (-1L << from) : set[word];
+            if (bits != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+    
+    private long[][] computeOccupancy() {
+        long[][] sets = new long[2][attackTables.words];
+        for (Piece p : piecesOnTheBoard) {
+            int square = p.getSquare();
+            sets[((ChessPiece) p).getColor() == Color.WHITE ? 0 : 1][square >>> 6] |= 1L << square;
+        }
+        return sets;
+    }
+    
+    // Destinos da peça sem testar se o próprio rei fica em xeque, montados com as máscaras das AttackTables;
+    // inCheck desativa o roque
+    private long[] pseudoLegalMoves(int square, long[][] occupancy, boolean inCheck) {
+        AttackTables tables = attackTables;
+        int words = tables.words;
+        int base = square * words;
+        ChessPiece piece = (ChessPiece) board.piece(square);
+        int color = piece.getColor() == Color.WHITE ? 0 : 1;
+        long[] own = occupancy[color];
+        long[] enemy = occupancy[1 - color];
+        char type = piece.toString().charAt(0);
+        long[] moves = new long[words];
         
-        // Guarda informações para notação SAN antes do movimento
-        ChessPiece movingPiece = (ChessPiece) board.piece(source);
-        boolean isCapture = board.thereIsAPiece(target) || 
-                           (movingPiece instanceof Pawn && source.getColumn() != target.getColumn());
-        boolean isCastlingShort = movingPiece instanceof King && target.getColumn() == source.getColumn() + 2;
-        boolean isCastlingLong = movingPiece instanceof King && target.getColumn() == source.getColumn() - 2;
-        String disambiguation = getDisambiguation(movingPiece, source, target);
+        if (type == 'P') {
+            addPawnMoves(moves, piece, square, enemy);
+            return moves;
+        }
+        if ("NAC".indexOf(type) >= 0) {
+            for (int w = 0; w < words; w++) {
+                moves[w] |= tables.knight[base + w];
+            }
+        }
+        if (type == 'K') {
+            for (int w = 0; w < words; w++) {
+                moves[w] |= tables.king[base + w];
+            }
+        }
+        for (int direction = 0; direction < 8; direction++) {
+            if ((AttackTables.diagonal(direction) ? "BQA" : "RQC").indexOf(type) >= 0) {
+                addSlidingMoves(moves, tables.rays[direction], base, AttackTables.increasing(direction), own, enemy);
+            }
+        }
+        for (int w = 0; w < words; w++) {
+            moves[w] &= ~own[w];
+        }
+        if (type == 'K' && piece.getMoveCount() == 0 && !inCheck) {
+            addCastling(moves, square, 0);
+            addCastling(moves, square, board.getColumns() - 1);
+        }
+        return moves;
+    }
+    
+    // Raio até a primeira peça, inclusive: a casa da peça fica no conjunto e o que está além dela sai
+    private void addSlidingMoves(long[] moves, long[] ray, int base, boolean increasing, long[] own, long[] enemy) {
+        int words = attackTables.words;
+        int blocker = -1;
+        for (int i = 0; i < words && blocker < 0; i++) {
+            int word = increasing ? i : words - 1 - i;
+            long blockers = ray[base + word] & (own[word] | enemy[word]);
+            if (blockers != 0) {
+                blocker = word * 64 + (increasing ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers));
+            }
+        }
+        for (int w = 0; w < words; w++) {
+            moves[w] |= blocker < 0 ? ray[base + w] : ray[base + w] ^ ray[blocker * words + w];
+        }
+    }
+    
+    // Avanços, capturas (tabela de ataque do peão) e en passant
+    private void addPawnMoves(long[] moves, ChessPiece pawn, int square, long[] enemy) {
+        boolean white = pawn.getColor() == Color.WHITE;
+        int forward = white ? -board.getColumns() : board.getColumns();
+        int row = board.row(square);
+        int step = square + forward;
+        if (isRow(row + (white ? -1 : 1)) && !board.thereIsAPiece(step)) {
+            moves[step >>> 6] |= 1L << step;
+            int jump = step + forward;
+            if (pawn.getMoveCount() == 0 && isRow(row + (white ? -2 : 2)) && !board.thereIsAPiece(jump)) {
+                moves[jump >>> 6] |= 1L << jump;
+            }
+        }
+        long[] attacks = attackTables.pawn[white ? 0 : 1];
+        int base = square * attackTables.words;
+        for (int w = 0; w < moves.length; w++) {
+            moves[w] |= attacks[base + w] & enemy[w];
+        }
+        // En passant: o peão adversário que avançou duas casas está ao lado, na quarta fileira do ponto de vista dele
+        if (enPassantVulnerable != null && enPassantVulnerable.getColor() != pawn.getColor() 
+            && row == (white ? 3 : board.getRows() - 4)) {
+            int vulnerable = enPassantVulnerable.getSquare();
+            if (board.row(vulnerable) == row && Math.abs(board.column(vulnerable) - board.column(square)) == 1) {
+                int target = vulnerable + forward;
+                moves[target >>> 6] |= 1L << target;
+            }
+        }
+    }
+    
+    private boolean isRow(int row) {
+        return row >= 0 && row < board.getRows();
+    }
+    
+    // Roque com a torre do canto indicado: ela não se moveu, as casas entre ela e o rei estão vazias
+    // e o rei anda pelo menos duas casas até castlingKingColumn
+    private void addCastling(long[] moves, int kingSquare, int rookColumn) {
+        int row = board.row(kingSquare);
+        int column = board.column(kingSquare);
+        int step = rookColumn > column ? 1 : -1;
+        int target = castlingKingColumn(rookColumn);
+        ChessPiece king = (ChessPiece) board.piece(kingSquare);
+        ChessPiece rook = (ChessPiece) board.piece(row, rookColumn);
+        if ((target - column) * step < 2 || !(rook instanceof Rook) || rook.getMoveCount() != 0 
+            || rook.getColor() != king.getColor()) {
+            return;
+        }
+        for (int c = column + step; c != rookColumn; c += step) {
+            if (board.piece(row, c) != null) {
+                return;
+            }
+        }
+        int square = board.square(row, target);
+        moves[square >>> 6] |= 1L << square;
+    }
+    
+    // Camada de compatibilidade: lança ChessException com a mensagem do código de validação
+    public ChessPiece performChessMove(ChessPosition sourcePosition, ChessPosition targetPosition) {
+        MoveResult result = tryChessMove(sourcePosition, targetPosition);
+        if (result != MoveResult.OK) {
+            throw new ChessException(result.getMessage(variant));
+        }
+        return lastCapturedPiece;
+    }
+    
+    // Valida a origem sem lançar exceção (para o UI destacar os movimentos)
+    public MoveResult validateSource(ChessPosition sourcePosition) {
+        int square = toSquare(sourcePosition);
+        return square < 0 ? MoveResult.INVALID_FORMAT : checkSource(square);
+    }
+    
+    // Executa o lance completo (SAN, xeque, xeque-mate); a peça capturada fica em getLastCapturedPiece()
+    public MoveResult tryChessMove(ChessPosition sourcePosition, ChessPosition targetPosition) {
+        long start = EngineMetrics.start();
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        MoveResult result = executeChessMove(sourcePosition, targetPosition);
+        EngineMetrics.stop(EngineMetrics.Timer.PERFORM_MOVE, start);
+        if (event.shouldCommit()) {
+            event.move = sourcePosition.toString() + targetPosition.toString();
+            event.result = result.name();
+            event.ply = moveHistory.size();
+            event.commit();
+        }
+        return result;
+    }
+    
+    private MoveResult executeChessMove(ChessPosition sourcePosition, ChessPosition targetPosition) {
+        if (checkMate) {
+            return MoveResult.GAME_OVER;
+        }
+        if (clock != null && clock.checkFlag() != null) {
+            return MoveResult.TIME_OUT;
+        }
+        getCheck();
+        int source = toSquare(sourcePosition);
+        int target = toSquare(targetPosition);
+        if (source < 0 || target < 0) {
+            return MoveResult.INVALID_FORMAT;
+        }
+        MoveResult result = checkSource(source);
+        if (result == MoveResult.OK) {
+            result = checkTarget(source, target);
+        }
+        if (result != MoveResult.OK) {
+            return result;
+        }
         
         Piece capturedPiece = makeMove(source, target);
         
         // Verifica se o jogador se colocou em xeque
         if (testCheck(currentPlayer)) {
             undoMove(source, target, capturedPiece);
-            throw new ChessException("Você não pode se colocar em xeque!");
+            EngineMetrics.count(EngineMetrics.Counter.SELF_CHECK_REJECTED, 1);
+            return MoveResult.SELF_CHECK;
         }
         
         ChessPiece movedPiece = (ChessPiece) board.piece(target);
+        recordMove(source, target, capturedPiece);
         
         // Promoção
         promoted = null;
-        String promotionPiece = "";
-        if (movedPiece instanceof Pawn) {
-            if ((movedPiece.getColor() == Color.WHITE && target.getRow() == 0) || 
-                (movedPiece.getColor() == Color.BLACK && target.getRow() == 7)) {
-                promoted = (ChessPiece) board.piece(target);
-                promoted = replacePromotedPiece("Q"); // Promoção padrão para Rainha
-                promotionPiece = "=Q";
-            }
+        if (movedPiece instanceof Pawn && isLastRow(target)) {
+            promoted = (ChessPiece) board.piece(target);
+            promoted = replacePromoted("Q"); // Promoção padrão para Rainha
         }
         
         check = testCheck(opponent(currentPlayer));
         boolean isCheckMateMove = testCheckMate(opponent(currentPlayer));
         
-        // Gera notação SAN
-        String notation = generateSANNotation(movingPiece, sourcePosition, targetPosition, 
-                                              isCapture, isCastlingShort, isCastlingLong, 
-                                              disambiguation, promotionPiece, check, isCheckMateMove);
-        moveHistory.add(notation);
+        // A SAN não é gerada aqui: o histórico guarda o lance e as flags e a gera quando consultado
+        moveHistory.markLast(MoveHistory.STATUS_KNOWN | (check ? MoveHistory.CHECK : 0) 
+                             | (isCheckMateMove ? MoveHistory.CHECKMATE : 0));
+        checkPending = false;
+        checkMatePending = false;
         
         if (isCheckMateMove) {
             checkMate = true;
+            if (clock != null) {
+                clock.stop();
+            }
         } else {
             nextTurn();
         }
         
         // En Passant
-        if (movedPiece instanceof Pawn && (target.getRow() == source.getRow() - 2 || target.getRow() == source.getRow() + 2)) {
+        if (movedPiece instanceof Pawn && Math.abs(board.row(target) - board.row(source)) == 2) {
             enPassantVulnerable = movedPiece;
         } else {
             enPassantVulnerable = null;
         }
+        invalidateCaches();
+        publishSnapshot();
+        fireMoveMade();
+        
+        lastCapturedPiece = (ChessPiece) capturedPiece;
+        return MoveResult.OK;
+    }
+    
+    // Aplica uma sequência de lances codificados com ChessMove, parando no primeiro inválido.
+    // Não gera SAN nem testa xeque-mate; ambos são calculados quando forem consultados.
+    public MoveResult applyMoves(int[] moves) {
+        for (int move : moves) {
+            MoveResult result = applyMove(move);
+            if (result != MoveResult.OK) {
+                return result;
+            }
+        }
+        return MoveResult.OK;
+    }
+    
+    // Aplica uma sequência de lances em notação UCI (ex: e2e4, e7e8q)
+    public MoveResult applyUci(String... moves) {
+        for (String uci : moves) {
+            int move = ChessMove.fromUci(uci, board.getRows(), board.getColumns());
+            if (move < 0) {
+                return MoveResult.INVALID_FORMAT;
+            }
+            MoveResult result = applyMove(move);
+            if (result != MoveResult.OK) {
+                return result;
+            }
+        }
+        return MoveResult.OK;
+    }
+    
+    // Aplica um único lance pelo caminho rápido
+    public MoveResult applyMove(int move) {
+        if (checkMate) {
+            return MoveResult.GAME_OVER;
+        }
+        if (clock != null && clock.checkFlag() != null) {
+            return MoveResult.TIME_OUT;
+        }
+        // Resolve o xeque pendente antes de alterar o tabuleiro (o roque do rei depende dele)
+        getCheck();
+        int source = ChessMove.source(move);
+        int target = ChessMove.target(move);
+        MoveResult result = checkSource(source);
+        if (result == MoveResult.OK) {
+            result = checkTarget(source, target);
+        }
+        if (result != MoveResult.OK) {
+            return result;
+        }
+        ChessPiece movingPiece = (ChessPiece) board.piece(source);
+        
+        Piece capturedPiece = makeMove(source, target);
+        if (testCheck(currentPlayer)) {
+            undoMove(source, target, capturedPiece);
+            EngineMetrics.count(EngineMetrics.Counter.SELF_CHECK_REJECTED, 1);
+            return MoveResult.SELF_CHECK;
+        }
+        
+        recordMove(source, target, capturedPiece);
+        
+        // Promoção: usa a peça indicada no lance (Rainha por padrão)
+        promoted = null;
+        if (movingPiece instanceof Pawn && isLastRow(target)) {
+            String type = ChessMove.promotionType(move);
+            promoted = movingPiece;
+            replacePromoted(type != null ? type : "Q");
+            promoted = null;
+        }
+        
+        checkPending = true;
+        checkMatePending = true;
+        nextTurn();
+        
+        // En Passant
+        if (movingPiece instanceof Pawn && Math.abs(board.row(target) - board.row(source)) == 2) {
+            enPassantVulnerable = movingPiece;
+        } else {
+            enPassantVulnerable = null;
+        }
+        invalidateCaches();
+        publishSnapshot();
+        fireMoveMade();
+        return MoveResult.OK;
+    }
+    
+    // Registra o lance no histórico e empilha o estado anterior para takeBack()
+    private void recordMove(int source, int target, Piece capturedPiece) {
+        int move = ChessMove.encode(source, target, ChessMove.NO_PROMOTION);
+        moveHistory.add(move, capturedPiece != null ? MoveHistory.CAPTURE : 0);
+        
+        if (undoCount == undoState.length) {
+            int length = undoCount * 2;
+            undoState = Arrays.copyOf(undoState, length);
+            undoHalfmoveClock = Arrays.copyOf(undoHalfmoveClock, length);
+            undoHash = Arrays.copyOf(undoHash, length);
+            undoCaptured = Arrays.copyOf(undoCaptured, length);
+            undoPromotedPawn = Arrays.copyOf(undoPromotedPawn, length);
+        }
+        // Se o peão vulnerável foi capturado (en passant ou captura comum) ele já saiu do tabuleiro:
+        // estava na coluna do destino, na fileira em que o avanço duplo o deixou
+        int enPassantSquare = -1;
+        if (enPassantVulnerable != null) {
+            int row = enPassantVulnerable.getColor() == Color.WHITE ? board.getRows() - 4 : 3;
+            enPassantSquare = enPassantVulnerable == capturedPiece 
+                ? board.square(row, board.column(target)) : enPassantVulnerable.getSquare();
+        }
+        undoState[undoCount] = move | ((enPassantSquare + 1) << 20) | (check ? 1 << 29 : 0);
+        undoHalfmoveClock[undoCount] = halfmoveClock;
+        undoHash[undoCount] = positionHashValid ? positionHash : 0;
+        undoCaptured[undoCount] = capturedPiece;
+        undoPromotedPawn[undoCount] = null;
+        undoCount++;
+        
+        if (capturedPiece != null || board.piece(target) instanceof Pawn) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+        
+        // Repetir o lance desfeito consome o redo; qualquer outro lance o descarta
+        if (redoCount > 0 && ChessMove.source(redoMoves[redoCount - 1]) == source 
+            && ChessMove.target(redoMoves[redoCount - 1]) == target) {
+            redoCount--;
+        } else {
+            redoCount = 0;
+        }
+    }
+    
+    // Desfaz o último lance, restaurando en passant, xeque, contador de 50 lances e histórico
+    public boolean takeBack() {
+        if (undoCount == 0) {
+            return false;
+        }
+        undoCount--;
+        int state = undoState[undoCount];
+        int source = ChessMove.source(state);
+        int target = ChessMove.target(state);
+        int lastMove = moveHistory.removeLast();
+        
+        // Troca a peça promovida pelo peão original antes de desfazer o movimento
+        Piece pawn = undoPromotedPawn[undoCount];
+        if (pawn != null) {
+            piecesOnTheBoard.remove(board.removePiece(target));
+            board.placePiece(pawn, target);
+            piecesOnTheBoard.add(pawn);
+            undoPromotedPawn[undoCount] = null;
+        }
         
-        return (ChessPiece) capturedPiece;
+        // Restaura o peão vulnerável antes de undoMove (que o usa para desfazer o en passant).
+        // Se ele foi capturado, sua casa está vazia (en passant) ou ocupada pela peça que o capturou.
+        int enPassantSquare = ((state >>> 20) & 0x1FF) - 1;
+        enPassantVulnerable = null;
+        if (enPassantSquare >= 0) {
+            Piece p = board.piece(enPassantSquare);
+            enPassantVulnerable = (ChessPiece) (p != null && enPassantSquare != target ? p : undoCaptured[undoCount]);
+        }
+        undoMove(source, target, undoCaptured[undoCount]);
+        undoCaptured[undoCount] = null;
+        
+        // Após xeque-mate o turno não avançou
+        if (checkMate) {
+            checkMate = false;
+        } else {
+            turn--;
+            currentPlayer = opponent(currentPlayer);
+        }
+        // O tempo já gasto não é devolvido; o relógio volta a correr para quem vai jogar
+        if (clock != null && clock.getFlagged() == null) {
+            clock.stop();
+            clock.start(currentPlayer);
+        }
+        check = (state & (1 << 29)) != 0;
+        checkPending = false;
+        checkMatePending = false;
+        promoted = null;
+        lastCapturedPiece = null;
+        halfmoveClock = undoHalfmoveClock[undoCount];
+        invalidateCaches();
+        if (undoHash[undoCount] != 0) {
+            positionHash = undoHash[undoCount];
+            positionHashValid = true;
+        }
+        
+        if (redoCount == redoMoves.length) {
+            redoMoves = Arrays.copyOf(redoMoves, redoCount * 2);
+        }
+        redoMoves[redoCount++] = lastMove;
+        publishSnapshot();
+        for (MoveListener listener : listeners) {
+            listener.moveTakenBack(this, moveHistory.size(), snapshot);
+        }
+        return true;
+    }
+    
+    // Refaz o último lance desfeito por takeBack()
+    public boolean redo() {
+        if (redoCount == 0) {
+            return false;
+        }
+        return applyMove(redoMoves[redoCount - 1]) == MoveResult.OK;
+    }
+    
+    public boolean canTakeBack() {
+        return undoCount > 0;
+    }
+    
+    public boolean canRedo() {
+        return redoCount > 0;
+    }
+    
+    // Gera a SAN (sem + ou #) de um lance na posição atual, antes de aplicá-lo
+    public String notation(int move) {
+        long start = EngineMetrics.start();
+        int source = ChessMove.source(move);
+        int target = ChessMove.target(move);
+        ChessPiece piece = (ChessPiece) board.piece(source);
+        boolean isCapture = board.thereIsAPiece(target) || 
+                           (piece instanceof Pawn && board.column(source) != board.column(target));
+        boolean isCastlingShort = isCastling(piece, source, target) && board.column(target) > board.column(source);
+        boolean isCastlingLong = isCastling(piece, source, target) && board.column(target) < board.column(source);
+        String promotion = ChessMove.promotionType(move);
+        String san = generateSANNotation(piece, toChessPosition(source), toChessPosition(target),
+                                         isCapture, isCastlingShort, isCastlingLong, getDisambiguation(piece, source, target),
+                                         promotion != null ? "=" + promotion : "");
+        EngineMetrics.stop(EngineMetrics.Timer.SAN, start);
+        return san;
     }
     
     // Gera notação algébrica padrão (SAN)
     private String generateSANNotation(ChessPiece piece, ChessPosition source, ChessPosition target,
                                        boolean isCapture, boolean isCastlingShort, boolean isCastlingLong,
-                                       String disambiguation, String promotion, boolean isCheck, boolean isCheckMate) {
+                                       String disambiguation, String promotion) {
         StringBuilder notation = new StringBuilder();
         
         // Roque
@@ -173,28 +931,29 @@ public class ChessMatch {
             notation.append(target.getRow());
         }
         
-        // Xeque ou xeque-mate
-        if (isCheckMate) {
-            notation.append("#");
-        } else if (isCheck) {
-            notation.append("+");
-        }
-        
         return notation.toString();
     }
     
     // Determina se precisa desambiguar o movimento (quando duas peças iguais podem ir para o mesmo destino)
-    private String getDisambiguation(ChessPiece piece, Position source, Position target) {
+    private String getDisambiguation(ChessPiece piece, int source, int target) {
+        long start = EngineMetrics.start();
+        String disambiguation = findDisambiguation(piece, source, target);
+        EngineMetrics.stop(EngineMetrics.Timer.DISAMBIGUATION, start);
+        return disambiguation;
+    }
+    
+    private String findDisambiguation(ChessPiece piece, int source, int target) {
         if (piece instanceof Pawn || piece instanceof King) {
             return "";
         }
         
         List<ChessPiece> samePieces = new ArrayList<>();
+        long[][] occupancy = computeOccupancy();
         for (Piece p : piecesOnTheBoard) {
             ChessPiece cp = (ChessPiece) p;
             if (cp != piece && cp.getClass() == piece.getClass() && cp.getColor() == piece.getColor()) {
-                boolean[][] moves = cp.possibleMoves();
-                if (moves[target.getRow()][target.getColumn()]) {
+                long[] moves = pseudoLegalMoves(cp.getSquare(), occupancy, true);
+                if ((moves[target >>> 6] & (1L << target)) != 0) {
                     samePieces.add(cp);
                 }
             }
@@ -204,7 +963,7 @@ public class ChessMatch {
             return "";
         }
         
-        ChessPosition sourceChess = ChessPosition.fromPosition(source);
+        ChessPosition sourceChess = toChessPosition(source);
         boolean sameColumn = false;
         boolean sameRow = false;
         
@@ -229,20 +988,35 @@ public class ChessMatch {
     
     // Substitui peça promovida
     public ChessPiece replacePromotedPiece(String type) {
+        ChessPiece newPiece = replacePromoted(type);
+        publishSnapshot();
+        fireMoveMade();
+        return newPiece;
+    }
+    
+    private ChessPiece replacePromoted(String type) {
         if (promoted == null) {
             throw new IllegalStateException("Não há peça para ser promovida");
         }
-        if (!type.equals("B") && !type.equals("N") && !type.equals("R") && !type.equals("Q")) {
+        if (!type.equals("B") && !type.equals("N") && !type.equals("R") && !type.equals("Q")
+            && !(type.length() == 1 && "AC".contains(type) && variant.getBackRank().contains(type))) {
             return promoted;
         }
         
-        Position pos = promoted.getChessPosition().toPosition();
+        int pos = promoted.getSquare();
         Piece p = board.removePiece(pos);
         piecesOnTheBoard.remove(p);
+        // Guarda o peão original para que takeBack() possa recolocá-lo
+        if (p instanceof Pawn) {
+            undoPromotedPawn[undoCount - 1] = p;
+        }
         
         ChessPiece newPiece = newPiece(type, promoted.getColor());
         board.placePiece(newPiece, pos);
         piecesOnTheBoard.add(newPiece);
+        // O lance que gerou a promoção é sempre o último registrado
+        moveHistory.setLastPromotion(type);
+        invalidateCaches();
         
         return newPiece;
     }
@@ -251,10 +1025,12 @@ public class ChessMatch {
         if (type.equals("B")) return new Bishop(board, color);
         if (type.equals("N")) return new Knight(board, color);
         if (type.equals("Q")) return new Queen(board, color);
+        if (type.equals("A")) return new Archbishop(board, color);
+        if (type.equals("C")) return new Chancellor(board, color);
         return new Rook(board, color);
     }
     
-    private Piece makeMove(Position source, Position target) {
+    private Piece makeMove(int source, int target) {
         ChessPiece p = (ChessPiece) board.removePiece(source);
         p.increaseMoveCount();
         Piece capturedPiece = board.removePiece(target);
@@ -265,34 +1041,24 @@ public class ChessMatch {
             capturedPieces.add(capturedPiece);
         }
         
-        // Roque pequeno
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            board.placePiece(rook, targetT);
-            rook.increaseMoveCount();
-        }
-        
-        // Roque grande
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            board.placePiece(rook, targetT);
+        // Roque: a torre do canto salta para a casa ao lado do destino do rei, por onde ele passou
+        if (isCastling(p, source, target)) {
+            boolean kingSide = board.column(target) > board.column(source);
+            ChessPiece rook = (ChessPiece) board.removePiece(board.square(board.row(source), kingSide ? board.getColumns() - 1 : 0));
+            board.placePiece(rook, kingSide ? target - 1 : target + 1);
             rook.increaseMoveCount();
         }
         
         // En Passant
         if (p instanceof Pawn) {
-            if (source.getColumn() != target.getColumn() && capturedPiece == null) {
-                Position pawnPosition;
+            if (board.column(source) != board.column(target) && capturedPiece == null) {
+                int pawnSquare;
                 if (p.getColor() == Color.WHITE) {
-                    pawnPosition = new Position(target.getRow() + 1, target.getColumn());
+                    pawnSquare = target + board.getColumns();
                 } else {
-                    pawnPosition = new Position(target.getRow() - 1, target.getColumn());
+                    pawnSquare = target - board.getColumns();
                 }
-                capturedPiece = board.removePiece(pawnPosition);
+                capturedPiece = board.removePiece(pawnSquare);
                 capturedPieces.add(capturedPiece);
                 piecesOnTheBoard.remove(capturedPiece);
             }
@@ -301,7 +1067,7 @@ public class ChessMatch {
         return capturedPiece;
     }
     
-    private void undoMove(Position source, Position target, Piece capturedPiece) {
+    private void undoMove(int source, int target, Piece capturedPiece) {
         ChessPiece p = (ChessPiece) board.removePiece(target);
         p.decreaseMoveCount();
         board.placePiece(p, source);
@@ -312,58 +1078,55 @@ public class ChessMatch {
             piecesOnTheBoard.add(capturedPiece);
         }
         
-        // Desfaz roque pequeno
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            board.placePiece(rook, sourceT);
-            rook.decreaseMoveCount();
-        }
-        
-        // Desfaz roque grande
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            board.placePiece(rook, sourceT);
+        // Desfaz roque
+        if (isCastling(p, source, target)) {
+            boolean kingSide = board.column(target) > board.column(source);
+            ChessPiece rook = (ChessPiece) board.removePiece(kingSide ? target - 1 : target + 1);
+            board.placePiece(rook, board.square(board.row(source), kingSide ? board.getColumns() - 1 : 0));
             rook.decreaseMoveCount();
         }
         
         // Desfaz En Passant
         if (p instanceof Pawn) {
-            if (source.getColumn() != target.getColumn() && capturedPiece == enPassantVulnerable) {
+            if (board.column(source) != board.column(target) && capturedPiece == enPassantVulnerable) {
                 ChessPiece pawn = (ChessPiece) board.removePiece(target);
-                Position pawnPosition;
+                int pawnSquare;
                 if (p.getColor() == Color.WHITE) {
-                    pawnPosition = new Position(3, target.getColumn());
+                    pawnSquare = board.square(3, board.column(target));
                 } else {
-                    pawnPosition = new Position(4, target.getColumn());
+                    pawnSquare = board.square(board.getRows() - 4, board.column(target));
                 }
-                board.placePiece(pawn, pawnPosition);
+                board.placePiece(pawn, pawnSquare);
             }
         }
     }
     
-    private void validateSourcePosition(Position position) {
-        if (!board.thereIsAPiece(position)) {
-            throw new ChessException("Não existe peça na posição de origem");
+    private MoveResult checkSource(int source) {
+        ChessPiece p = (ChessPiece) board.piece(source);
+        if (p == null) {
+            return MoveResult.NO_PIECE;
         }
-        if (currentPlayer != ((ChessPiece) board.piece(position)).getColor()) {
-            throw new ChessException("A peça escolhida não é sua");
+        if (currentPlayer != p.getColor()) {
+            return MoveResult.NOT_YOUR_PIECE;
         }
-        if (!board.piece(position).isThereAnyPossibleMove()) {
-            throw new ChessException("Não existe movimentos possíveis para a peça escolhida");
+        if (!isThereAnyPossibleMove(cachedPossibleMoves(source))) {
+            return MoveResult.NO_POSSIBLE_MOVES;
         }
+        return MoveResult.OK;
     }
     
-    private void validateTargetPosition(Position source, Position target) {
-        if (!board.piece(source).possibleMove(target)) {
-            throw new ChessException("A peça escolhida não pode se mover para a posição de destino");
+    private MoveResult checkTarget(int source, int target) {
+        if ((cachedPossibleMoves(source)[target >>> 6] & (1L << target)) == 0) {
+            return MoveResult.ILLEGAL_MOVE;
         }
+        return MoveResult.OK;
     }
     
     private void nextTurn() {
+        invalidateCaches();
+        if (clock != null) {
+            clock.punch(currentPlayer);
+        }
         turn++;
         currentPlayer = (currentPlayer == Color.WHITE) ? Color.BLACK : Color.WHITE;
     }
@@ -373,93 +1136,161 @@ public class ChessMatch {
     }
     
     private ChessPiece king(Color color) {
-        List<Piece> list = piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-            if (p instanceof King) {
-                return (ChessPiece) p;
+        for (int i = 0; i < piecesOnTheBoard.size(); i++) {
+            ChessPiece p = (ChessPiece) piecesOnTheBoard.get(i);
+            if (p instanceof King && p.getColor() == color) {
+                return p;
             }
         }
         throw new IllegalStateException("Não existe rei " + color + " no tabuleiro");
     }
     
     private boolean testCheck(Color color) {
-        Position kingPosition = king(color).getChessPosition().toPosition();
-        List<Piece> opponentPieces = piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == opponent(color)).collect(Collectors.toList());
-        for (Piece p : opponentPieces) {
-            boolean[][] mat = p.possibleMoves();
-            if (mat[kingPosition.getRow()][kingPosition.getColumn()]) {
+        long start = EngineMetrics.start();
+        boolean check = isKingAttacked(color);
+        EngineMetrics.stop(EngineMetrics.Timer.TEST_CHECK, start);
+        return check;
+    }
+    
+    // Procura atacantes a partir da casa do rei com as tabelas pré-calculadas do tamanho do tabuleiro,
+    // sem gerar os lances adversários
+    private boolean isKingAttacked(Color color) {
+        AttackTables tables = attackTables;
+        int base = king(color).getSquare() * tables.words;
+        Color opponent = opponent(color);
+        // Um peão branco ataca o rei nas casas de onde um peão preto atacaria, e vice-versa
+        if (isAttackedFrom(tables.pawn[color == Color.WHITE ? 0 : 1], base, opponent, "P")
+                || isAttackedFrom(tables.knight, base, opponent, "NAC")
+                || isAttackedFrom(tables.king, base, opponent, "K")) {
+            return true;
+        }
+        for (int direction = 0; direction < 8; direction++) {
+            ChessPiece piece = firstPieceOnRay(tables.rays[direction], base, AttackTables.increasing(direction));
+            if (piece != null && piece.getColor() == opponent 
+                && (AttackTables.diagonal(direction) ? "BQA" : "RQC").indexOf(piece.toString().charAt(0)) >= 0) {
                 return true;
             }
         }
         return false;
     }
     
+    // Alguma peça da cor e de um dos tipos indicados ocupa o conjunto de casas que começa em base
+    private boolean isAttackedFrom(long[] table, int base, Color color, String types) {
+        for (int word = 0; word < attackTables.words; word++) {
+            long squares = table[base + word];
+            while (squares != 0) {
+                int square = word * 64 + Long.numberOfTrailingZeros(squares);
+                squares &= squares - 1;
+                Piece piece = board.piece(square);
+                if (piece != null && types.indexOf(piece.toString().charAt(0)) >= 0 && ((ChessPiece) piece).getColor() == color) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    // Primeira peça do raio, percorrido a partir do rei (índices crescentes ou decrescentes)
+    private ChessPiece firstPieceOnRay(long[] ray, int base, boolean increasing) {
+        int words = attackTables.words;
+        for (int i = 0; i < words; i++) {
+            int word = increasing ? i : words - 1 - i;
+            long squares = ray[base + word];
+            while (squares != 0) {
+                int bit = increasing ? Long.numberOfTrailingZeros(squares) : 63 - Long.numberOfLeadingZeros(squares);
+                squares &= ~(1L << bit);
+                Piece piece = board.piece(word * 64 + bit);
+                if (piece != null) {
+                    return (ChessPiece) piece;
+                }
+            }
+        }
+        return null;
+    }
+    
     private boolean testCheckMate(Color color) {
+        long start = EngineMetrics.start();
+        CheckMateTestEvent event = new CheckMateTestEvent();
+        event.begin();
+        boolean checkMate = isMated(color);
+        EngineMetrics.stop(EngineMetrics.Timer.TEST_CHECKMATE, start);
+        if (event.shouldCommit()) {
+            event.color = color.toString();
+            event.checkMate = checkMate;
+            event.commit();
+        }
+        return checkMate;
+    }
+    
+    // Percorre o tabuleiro (e não piecesOnTheBoard), pois makeMove/undoMove alteram a lista
+    private boolean isMated(Color color) {
         if (!testCheck(color)) {
             return false;
         }
-        List<Piece> list = piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-            boolean[][] mat = p.possibleMoves();
-            for (int i = 0; i < board.getRows(); i++) {
-                for (int j = 0; j < board.getColumns(); j++) {
-                    if (mat[i][j]) {
-                        Position source = ((ChessPiece) p).getChessPosition().toPosition();
-                        Position target = new Position(i, j);
-                        Piece capturedPiece = makeMove(source, target);
-                        boolean testCheck = testCheck(color);
-                        undoMove(source, target, capturedPiece);
-                        if (!testCheck) {
-                            return false;
-                        }
-                    }
+        // Não há roque em xeque; a ocupação vale para todas as peças, pois cada lance testado é desfeito.
+        // Para o jogador da vez usa o cache do turno, que a geração de lances reaproveita
+        long[][] occupancy = color == currentPlayer ? null : computeOccupancy();
+        int squares = board.getRows() * board.getColumns();
+        for (int source = 0; source < squares; source++) {
+            ChessPiece p = (ChessPiece) board.piece(source);
+            if (p == null || p.getColor() != color) {
+                continue;
+            }
+            long[] moves = occupancy == null ? cachedPossibleMoves(source) : pseudoLegalMoves(source, occupancy, true);
+            for (int target = nextSquare(moves, 0); target >= 0; target = nextSquare(moves, target + 1)) {
+                Piece capturedPiece = makeMove(source, target);
+                boolean testCheck = testCheck(color);
+                undoMove(source, target, capturedPiece);
+                if (!testCheck) {
+                    return false;
                 }
             }
         }
         return true;
     }
     
+    private boolean isLastRow(int square) {
+        return board.row(square) == 0 || board.row(square) == board.getRows() - 1;
+    }
+    
+    // Casa da coordenada digitada, ou -1 se ela não existir neste tabuleiro
+    private int toSquare(ChessPosition position) {
+        if (!position.isOnBoard(board.getRows(), board.getColumns())) {
+            return -1;
+        }
+        return board.square(position.toPosition(board.getRows()));
+    }
+    
+    // Adaptador para a borda da interface: índice da casa → coordenada (a1-h8 no tabuleiro padrão)
+    public ChessPosition toChessPosition(int square) {
+        return new ChessPosition((char) ('a' + board.column(square)), board.getRows() - board.row(square));
+    }
+    
     private void placeNewPiece(char column, int row, ChessPiece piece) {
-        board.placePiece(piece, new ChessPosition(column, row).toPosition());
+        board.placePiece(piece, new ChessPosition(column, row).toPosition(board.getRows()));
         piecesOnTheBoard.add(piece);
     }
     
-    // Configuração inicial das peças
+    // Configuração inicial: a fileira da variante na primeira e na última fileira, peões na frente
     private void initialSetup() {
-        // Peças brancas
-        placeNewPiece('a', 1, new Rook(board, Color.WHITE));
-        placeNewPiece('b', 1, new Knight(board, Color.WHITE));
-        placeNewPiece('c', 1, new Bishop(board, Color.WHITE));
-        placeNewPiece('d', 1, new Queen(board, Color.WHITE));
-        placeNewPiece('e', 1, new King(board, Color.WHITE, this));
-        placeNewPiece('f', 1, new Bishop(board, Color.WHITE));
-        placeNewPiece('g', 1, new Knight(board, Color.WHITE));
-        placeNewPiece('h', 1, new Rook(board, Color.WHITE));
-        placeNewPiece('a', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('b', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('c', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('d', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('e', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('f', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('g', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('h', 2, new Pawn(board, Color.WHITE, this));
-        
-        // Peças pretas
-        placeNewPiece('a', 8, new Rook(board, Color.BLACK));
-        placeNewPiece('b', 8, new Knight(board, Color.BLACK));
-        placeNewPiece('c', 8, new Bishop(board, Color.BLACK));
-        placeNewPiece('d', 8, new Queen(board, Color.BLACK));
-        placeNewPiece('e', 8, new King(board, Color.BLACK, this));
-        placeNewPiece('f', 8, new Bishop(board, Color.BLACK));
-        placeNewPiece('g', 8, new Knight(board, Color.BLACK));
-        placeNewPiece('h', 8, new Rook(board, Color.BLACK));
-        placeNewPiece('a', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('b', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('c', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('d', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('e', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('f', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('g', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('h', 7, new Pawn(board, Color.BLACK, this));
+        String backRank = variant.getBackRank();
+        int rows = board.getRows();
+        for (Color color : new Color[] { Color.WHITE, Color.BLACK }) {
+            int backRow = color == Color.WHITE ? 1 : rows;
+            int pawnRow = color == Color.WHITE ? 2 : rows - 1;
+            for (int j = 0; j < backRank.length(); j++) {
+                placeNewPiece((char) ('a' + j), backRow, newSetupPiece(backRank.charAt(j), color));
+            }
+            for (int j = 0; j < backRank.length(); j++) {
+                placeNewPiece((char) ('a' + j), pawnRow, new Pawn(board, color, this));
+            }
+        }
+    }
+    
+    private ChessPiece newSetupPiece(char type, Color color) {
+        if (type == 'K') {
+            return new King(board, color, this);
+        }
+        return newPiece(String.valueOf(type), color);
     }
 }
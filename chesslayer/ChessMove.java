@@ -0,0 +1,128 @@
+package chesslayer;
+
+import boardlayer.Position;
+
+// Codificação compacta de um lance em 16 bits: origem (6), destino (6) e promoção (3).
+// Em tabuleiros maiores que 8x8 os 2 bits altos da origem e do destino ficam nos bits 16-19,
+// de modo que lances do 8x8 continuam cabendo em 16 bits
+public final class ChessMove {
+    
+    public static final int NO_PROMOTION = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int ARCHBISHOP = 5;
+    public static final int CHANCELLOR = 6;
+    
+    private static final String PROMOTION_TYPES = " NBRQAC";
+    private static final int PROMOTION_MASK = 0x7 << 12;
+    
+    private ChessMove() {
+    }
+    
+    public static int encode(int source, int target, int promotion) {
+        return (source & 0x3F) | ((target & 0x3F) << 6) | (promotion << 12) 
+             | ((source >>> 6) << 16) | ((target >>> 6) << 18);
+    }
+    
+    // Lance do tabuleiro 8x8
+    public static int of(ChessPosition source, ChessPosition target) {
+        return encode(square(source.toPosition(8)), square(target.toPosition(8)), NO_PROMOTION);
+    }
+    
+    public static int source(int move) {
+        return (move & 0x3F) | (((move >>> 16) & 0x3) << 6);
+    }
+    
+    public static int target(int move) {
+        return ((move >>> 6) & 0x3F) | (((move >>> 18) & 0x3) << 6);
+    }
+    
+    public static int promotion(int move) {
+        return (move >>> 12) & 0x7;
+    }
+    
+    // Retorna o tipo da peça promovida (N, B, R, Q, A, C) ou null se não houver promoção
+    public static String promotionType(int move) {
+        int promotion = promotion(move);
+        return promotion == NO_PROMOTION ? null : String.valueOf(PROMOTION_TYPES.charAt(promotion));
+    }
+    
+    public static int withPromotion(int move, String type) {
+        int promotion = type.length() == 1 ? PROMOTION_TYPES.indexOf(type.charAt(0)) : -1;
+        if (promotion < 1) {
+            throw new ChessException("Tipo de promoção inválido: " + type);
+        }
+        return (move & ~PROMOTION_MASK) | (promotion << 12);
+    }
+    
+    // Converte notação UCI (ex: e2e4, e7e8q); retorna -1 se a notação for inválida
+    public static int fromUci(String uci) {
+        return fromUci(uci, 8, 8);
+    }
+    
+    // UCI num tabuleiro rows x columns; fileiras acima de 9 têm dois dígitos (ex: a10j10)
+    public static int fromUci(String uci, int rows, int columns) {
+        if (uci == null || uci.length() < 4 || uci.length() > 7) {
+            return -1;
+        }
+        int split = 1;
+        while (split < uci.length() && Character.isDigit(uci.charAt(split))) {
+            split++;
+        }
+        int end = split + 1;
+        while (end < uci.length() && Character.isDigit(uci.charAt(end))) {
+            end++;
+        }
+        int source = square(uci, 0, split, rows, columns);
+        int target = end - split > 1 ? square(uci, split, end, rows, columns) : -1;
+        if (source < 0 || target < 0) {
+            return -1;
+        }
+        int promotion = NO_PROMOTION;
+        if (end < uci.length()) {
+            promotion = end == uci.length() - 1 ? PROMOTION_TYPES.indexOf(Character.toUpperCase(uci.charAt(end))) : -1;
+            if (promotion < 1) {
+                return -1;
+            }
+        }
+        return encode(source, target, promotion);
+    }
+    
+    public static String toUci(int move) {
+        return toUci(move, 8, 8);
+    }
+    
+    public static String toUci(int move, int rows, int columns) {
+        StringBuilder sb = new StringBuilder(7);
+        appendSquare(sb, source(move), rows, columns);
+        appendSquare(sb, target(move), rows, columns);
+        if (promotion(move) != NO_PROMOTION) {
+            sb.append(Character.toLowerCase(PROMOTION_TYPES.charAt(promotion(move))));
+        }
+        return sb.toString();
+    }
+    
+    static int square(Position position) {
+        return position.getRow() * 8 + position.getColumn();
+    }
+    
+    // Casa escrita em uci[start, end): uma letra de coluna seguida do número da fileira
+    private static int square(String uci, int start, int end, int rows, int columns) {
+        int column = uci.charAt(start) - 'a';
+        if (column < 0 || column >= columns || end - start < 2 || end - start > 3 || uci.charAt(start + 1) == '0') {
+            return -1;
+        }
+        int row = Integer.parseInt(uci, start + 1, end, 10);
+        if (row > rows) {
+            return -1;
+        }
+        return (rows - row) * columns + column;
+    }
+    
+    private static void appendSquare(StringBuilder sb, int square, int rows, int columns) {
+        sb.append((char) ('a' + square % columns));
+        sb.append(rows - square / columns);
+    }
+}
@@ -31,7 +31,7 @@ public abstract class ChessPiece extends Piece {
     }
     
     public ChessPosition getChessPosition() {
-        return ChessPosition.fromPosition(position);
+        return ChessPosition.fromPosition(position, getBoard().getRows());
     }
     
     // Verifica se existe peça adversária na posição
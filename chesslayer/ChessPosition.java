@@ -8,13 +8,22 @@ public class ChessPosition {
     private int row;
     
     public ChessPosition(char column, int row) {
-        if (column < 'a' || column > 'h' || row < 1 || row > 8) {
-            throw new ChessException("Erro ao instanciar ChessPosition. Valores válidos são de a1 a h8.");
+        if (!isValid(column, row)) {
+            throw new ChessException("Erro ao instanciar ChessPosition. Valores válidos são de a1 a p16.");
         }
         this.column = column;
         this.row = row;
     }
     
+    // Coordenada possível em algum tabuleiro (até 16x16); a partida confere se ela existe no seu
+    public static boolean isValid(char column, int row) {
+        return column >= 'a' && column < 'a' + Variant.MAX_SIZE && row >= 1 && row <= Variant.MAX_SIZE;
+    }
+    
+    public boolean isOnBoard(int rows, int columns) {
+        return column - 'a' < columns && row <= rows;
+    }
+    
     public char getColumn() {
         return column;
     }
@@ -23,14 +32,14 @@ public class ChessPosition {
         return row;
     }
     
-    // Converte posição de xadrez para posição de matriz
-    protected Position toPosition() {
-        return new Position(8 - row, column - 'a');
+    // Converte posição de xadrez para posição de matriz (linha 0 = última fileira)
+    protected Position toPosition(int rows) {
+        return new Position(rows - row, column - 'a');
     }
     
     // Converte posição de matriz para posição de xadrez
-    protected static ChessPosition fromPosition(Position position) {
-        return new ChessPosition((char)('a' + position.getColumn()), 8 - position.getRow());
+    protected static ChessPosition fromPosition(Position position, int rows) {
+        return new ChessPosition((char)('a' + position.getColumn()), rows - position.getRow());
     }
     
     @Override
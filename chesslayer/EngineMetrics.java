@@ -0,0 +1,128 @@
+package chesslayer;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+// Contadores e histogramas de latência do motor de regras, compartilhados por todas as partidas.
+//
+// Desligado por padrão: cada ponto instrumentado custa só a leitura de um boolean volatile.
+// Ligado, usa LongAdder (contadores divididos entre células por thread), então partidas em
+// threads diferentes não disputam a mesma linha de cache. Os histogramas têm intervalos em
+// potências de 2 de nanossegundos.
+public final class EngineMetrics {
+    
+    public enum Timer { PERFORM_MOVE, TEST_CHECK, TEST_CHECKMATE, DISAMBIGUATION, SAN }
+    
+    public enum Counter { MOVES_GENERATED, SELF_CHECK_REJECTED }
+    
+    private static final int BUCKETS = 40;
+    
+    private static volatile boolean enabled;
+    private static final LongAdder[] counters = adders(Counter.values().length);
+    private static final LongAdder[] timerCounts = adders(Timer.values().length);
+    private static final LongAdder[] timerTotals = adders(Timer.values().length);
+    private static final LongAdder[][] histograms = new LongAdder[Timer.values().length][];
+    
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = adders(BUCKETS);
+        }
+    }
+    
+    private EngineMetrics() {
+    }
+    
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+    
+    public static void enable() {
+        enabled = true;
+    }
+    
+    public static void disable() {
+        enabled = false;
+    }
+    
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    public static void reset() {
+        for (LongAdder adder : counters) {
+            adder.reset();
+        }
+        for (int i = 0; i < histograms.length; i++) {
+            timerCounts[i].reset();
+            timerTotals[i].reset();
+            for (LongAdder adder : histograms[i]) {
+                adder.reset();
+            }
+        }
+    }
+    
+    // Início de uma medição; 0 quando desligado (stop() então não registra nada)
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+    
+    static void stop(Timer timer, long start) {
+        if (start != 0) {
+            long nanos = System.nanoTime() - start;
+            int index = timer.ordinal();
+            timerCounts[index].increment();
+            timerTotals[index].add(nanos);
+            histograms[index][Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)))].increment();
+        }
+    }
+    
+    static void count(Counter counter, long amount) {
+        if (enabled) {
+            counters[counter.ordinal()].add(amount);
+        }
+    }
+    
+    public static long getCount(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+    
+    public static long getCount(Timer timer) {
+        return timerCounts[timer.ordinal()].sum();
+    }
+    
+    public static double getMeanNanos(Timer timer) {
+        long count = getCount(timer);
+        return count == 0 ? 0 : (double) timerTotals[timer.ordinal()].sum() / count;
+    }
+    
+    // Limite superior (em ns) do intervalo do histograma que contém o percentil
+    public static long percentileNanos(Timer timer, double percentile) {
+        LongAdder[] histogram = histograms[timer.ordinal()];
+        long target = (long) Math.ceil(getCount(timer) * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += histogram[bucket].sum();
+            if (seen >= target && seen > 0) {
+                return 2L << bucket;
+            }
+        }
+        return 0;
+    }
+    
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Timer timer : Timer.values()) {
+            sb.append(String.format(Locale.ROOT, "%-15s %10d chamadas  média %10.0f ns  p50 <= %9d ns  p99 <= %9d ns%n",
+                                    timer, getCount(timer), getMeanNanos(timer),
+                                    percentileNanos(timer, 50), percentileNanos(timer, 99)));
+        }
+        for (Counter counter : Counter.values()) {
+            sb.append(String.format(Locale.ROOT, "%-20s %10d%n", counter, getCount(counter)));
+        }
+        return sb.toString();
+    }
+}
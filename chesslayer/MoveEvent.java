@@ -0,0 +1,28 @@
+package chesslayer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento JFR de um lance executado por tryChessMove/performChessMove. Desligado por padrão;
+// é ligado por uma gravação (ex: jcmd <pid> JFR.start settings=docs/xadrez.jfc)
+@Name("chesslayer.Move")
+@Label("Lance")
+@Category("Xadrez")
+@Description("Execução de um lance pelo motor de regras")
+@Enabled(false)
+@StackTrace(false)
+class MoveEvent extends jdk.jfr.Event {
+    
+    @Label("Lance (UCI)")
+    String move;
+    
+    @Label("Resultado")
+    String result;
+    
+    @Label("Ply")
+    int ply;
+}
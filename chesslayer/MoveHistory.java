@@ -0,0 +1,132 @@
+package chesslayer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+// Histórico compacto da partida: um int por lance (20 bits do ChessMove + flags).
+// A notação SAN só é gerada quando consultada, reproduzindo os lances numa partida auxiliar.
+public class MoveHistory extends AbstractList<String> {
+    
+    public static final int CAPTURE = 1 << 24;
+    public static final int CHECK = 1 << 25;
+    public static final int CHECKMATE = 1 << 26;
+    // Indica que CHECK e CHECKMATE já foram calculados (caminho completo)
+    public static final int STATUS_KNOWN = 1 << 27;
+    // Bits do lance; os dois bits altos de cada casa só são usados em tabuleiros maiores que 8x8
+    private static final int MOVE = 0xFFFFF;
+    
+    private final Variant variant;
+    private int[] records = new int[32];
+    private int size;
+    
+    // Notação já gerada e partida auxiliar posicionada após o último lance gerado
+    private String[] notation;
+    private int rendered;
+    private ChessMatch replay;
+    
+    MoveHistory(Variant variant) {
+        this.variant = variant;
+    }
+    
+    void add(int move, int flags) {
+        if (size == records.length) {
+            records = Arrays.copyOf(records, size * 2);
+        }
+        records[size++] = (move & MOVE) | flags;
+    }
+    
+    // Acrescenta flags ao último lance (xeque e xeque-mate só são conhecidos após a promoção)
+    void markLast(int flags) {
+        records[size - 1] |= flags & ~MOVE;
+    }
+    
+    // Altera a peça de promoção do último lance (escolha feita após performChessMove)
+    void setLastPromotion(String type) {
+        int last = size - 1;
+        records[last] = (records[last] & ~MOVE) | ChessMove.withPromotion(records[last] & MOVE, type);
+        if (rendered > last) {
+            resetNotation();
+        }
+    }
+    
+    // Remove o último lance e retorna-o codificado com ChessMove
+    int removeLast() {
+        int move = records[--size] & MOVE;
+        if (rendered > size) {
+            // A partida auxiliar também volta um lance, sem reproduzir tudo de novo
+            replay.takeBack();
+            rendered = size;
+        }
+        return move;
+    }
+    
+    public int move(int ply) {
+        checkIndex(ply);
+        return records[ply] & MOVE;
+    }
+    
+    public int flags(int ply) {
+        checkIndex(ply);
+        return records[ply] & ~MOVE;
+    }
+    
+    // Retorna uma cópia dos lances codificados com ChessMove
+    public int[] moves() {
+        int[] moves = new int[size];
+        for (int i = 0; i < size; i++) {
+            moves[i] = records[i] & MOVE;
+        }
+        return moves;
+    }
+    
+    @Override
+    public String get(int index) {
+        checkIndex(index);
+        if (index >= rendered) {
+            renderUpTo(index);
+        }
+        return notation[index];
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    private void renderUpTo(int index) {
+        if (notation == null || notation.length < size) {
+            notation = Arrays.copyOf(notation == null ? new String[0] : notation, records.length);
+        }
+        if (replay == null) {
+            replay = new ChessMatch(variant);
+        }
+        for (int i = rendered; i <= index; i++) {
+            int move = records[i] & MOVE;
+            String san = replay.notation(move);
+            replay.applyMove(move);
+            boolean isCheck;
+            boolean isCheckMate;
+            if ((records[i] & STATUS_KNOWN) != 0) {
+                isCheck = (records[i] & CHECK) != 0;
+                isCheckMate = (records[i] & CHECKMATE) != 0;
+            } else {
+                isCheck = replay.getCheck();
+                isCheckMate = isCheck && replay.getCheckMate();
+            }
+            notation[i] = isCheckMate ? san + "#" : isCheck ? san + "+" : san;
+        }
+        rendered = index + 1;
+    }
+    
+    private void resetNotation() {
+        notation = null;
+        rendered = 0;
+        replay = null;
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Lance inexistente no histórico: " + index);
+        }
+    }
+}
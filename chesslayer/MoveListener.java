@@ -0,0 +1,11 @@
+package chesslayer;
+
+// Recebe os lances da partida na thread que os aplicou. A promoção escolhida depois do lance
+// (replacePromotedPiece) é reenviada com o mesmo ply e o lance atualizado.
+public interface MoveListener {
+    
+    void moveMade(ChessMatch match, int ply, int move, PositionSnapshot snapshot);
+    
+    default void moveTakenBack(ChessMatch match, int ply, PositionSnapshot snapshot) {
+    }
+}
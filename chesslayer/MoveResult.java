@@ -0,0 +1,33 @@
+package chesslayer;
+
+// Resultado da validação/aplicação de um lance sem exceções; a mensagem é a mesma das ChessException
+public enum MoveResult {
+    OK(""),
+    INVALID_FORMAT("Erro ao ler a posição de xadrez. Valores válidos são de a1 a p16."),
+    NO_PIECE("Não existe peça na posição de origem"),
+    NOT_YOUR_PIECE("A peça escolhida não é sua"),
+    NO_POSSIBLE_MOVES("Não existe movimentos possíveis para a peça escolhida"),
+    ILLEGAL_MOVE("A peça escolhida não pode se mover para a posição de destino"),
+    SELF_CHECK("Você não pode se colocar em xeque!"),
+    GAME_OVER("A partida já terminou"),
+    TIME_OUT("O tempo do jogador acabou");
+    
+    private final String message;
+    
+    MoveResult(String message) {
+        this.message = message;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    // Mensagem com as casas do tabuleiro da variante (ex: de a1 a j8 no Capablanca)
+    public String getMessage(Variant variant) {
+        if (this != INVALID_FORMAT) {
+            return message;
+        }
+        return "Erro ao ler a posição de xadrez. Valores válidos são de a1 a " 
+            + (char) ('a' + variant.getColumns() - 1) + variant.getRows() + ".";
+    }
+}
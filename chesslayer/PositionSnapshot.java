@@ -0,0 +1,110 @@
+package chesslayer;
+
+// Cópia imutável e compacta da posição, publicada pela ChessMatch após cada lance.
+// Pode ser lida por qualquer número de threads sem sincronizar com a partida em andamento.
+public final class PositionSnapshot {
+    
+    // Código por casa: 0 = vazia, 1..6 = brancas (P N B R Q K), 7..12 = pretas;
+    // nas variantes, 13..14 = arcebispo e chanceler brancos, 15..16 = pretos
+    private static final String SYMBOLS = " PNBRQKpnbrqkACac";
+    
+    public static final int CHECK = 1;
+    public static final int CHECKMATE = 2;
+    // Xeque/xeque-mate ainda não calculados (lance aplicado pelo caminho rápido)
+    public static final int STATUS_PENDING = 4;
+    
+    private final byte[] squares;
+    private final int columns;
+    private final int turn;
+    private final int ply;
+    private final Color currentPlayer;
+    private final int status;
+    private final int enPassantSquare;
+    private final int lastMove;
+    private final long positionHash;
+    
+    PositionSnapshot(byte[] squares, int columns, int turn, int ply, Color currentPlayer, int status,
+                     int enPassantSquare, int lastMove, long positionHash) {
+        this.squares = squares;
+        this.columns = columns;
+        this.turn = turn;
+        this.ply = ply;
+        this.currentPlayer = currentPlayer;
+        this.status = status;
+        this.enPassantSquare = enPassantSquare;
+        this.lastMove = lastMove;
+        this.positionHash = positionHash;
+    }
+    
+    static byte code(ChessPiece piece) {
+        if (piece == null) {
+            return 0;
+        }
+        int type = Zobrist.PIECE_TYPES.indexOf(piece.toString().charAt(0)) + 1;
+        if (type > 6) {
+            return (byte) (piece.getColor() == Color.WHITE ? type + 6 : type + 8);
+        }
+        return (byte) (piece.getColor() == Color.WHITE ? type : type + 6);
+    }
+    
+    // Peça na casa (row * columns + column): código de 0 a 12 (até 16 nas variantes)
+    public int pieceCode(int square) {
+        return squares[square];
+    }
+    
+    public int getRows() {
+        return squares.length / columns;
+    }
+    
+    public int getColumns() {
+        return columns;
+    }
+    
+    // Símbolo da peça (maiúsculo = brancas, minúsculo = pretas, espaço = vazia)
+    public char symbol(int row, int column) {
+        return SYMBOLS.charAt(squares[row * columns + column]);
+    }
+    
+    public Color colorAt(int row, int column) {
+        int code = squares[row * columns + column];
+        return code == 0 ? null : code <= 6 || code == 13 || code == 14 ? Color.WHITE : Color.BLACK;
+    }
+    
+    public int getTurn() {
+        return turn;
+    }
+    
+    public int getPly() {
+        return ply;
+    }
+    
+    public Color getCurrentPlayer() {
+        return currentPlayer;
+    }
+    
+    public boolean isCheck() {
+        return (status & CHECK) != 0;
+    }
+    
+    public boolean isCheckMate() {
+        return (status & CHECKMATE) != 0;
+    }
+    
+    public boolean isStatusKnown() {
+        return (status & STATUS_PENDING) == 0;
+    }
+    
+    // Casa do peão vulnerável a en passant, ou -1
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+    
+    // Último lance (ChessMove), ou -1 na posição inicial
+    public int getLastMove() {
+        return lastMove;
+    }
+    
+    public long getPositionHash() {
+        return positionHash;
+    }
+}
@@ -0,0 +1,133 @@
+package chesslayer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+// Tabelas de ataque (tabuleiro 8x8, casa = linha * 8 + coluna) e chaves de Zobrist.
+// Carregadas do recurso tables.bin ao lado da classe; sem o recurso, são calculadas na hora
+public final class PrecomputedTables {
+
+    static final String RESOURCE = "tables.bin";
+    private static final int MAGIC = 0x5842544C;
+    private static final int VERSION = 1;
+
+    static final int ZOBRIST_KEYS = 2 * 6 * 64 + 4 + 8 + 1;
+
+    static final long[] ZOBRIST = new long[ZOBRIST_KEYS];
+    static final long[] KNIGHT = new long[64];
+    static final long[] KING = new long[64];
+    // PAWN[0] = casas atacadas por peão branco, PAWN[1] = por peão preto
+    static final long[][] PAWN = new long[2][64];
+    // Raios nas direções de AttackTables: leste, sul, sudeste, sudoeste, oeste, norte, noroeste, nordeste
+    static final long[][] RAYS = new long[8][64];
+
+    private static final boolean LOADED_FROM_RESOURCE;
+
+    static {
+        boolean loaded = false;
+        try (InputStream in = PrecomputedTables.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                read(new DataInputStream(new BufferedInputStream(in)));
+                loaded = true;
+            }
+        } catch (IOException e) {
+            loaded = false;
+        }
+        if (!loaded) {
+            compute();
+        }
+        LOADED_FROM_RESOURCE = loaded;
+    }
+
+    private PrecomputedTables() {
+    }
+
+    public static boolean isLoadedFromResource() {
+        return LOADED_FROM_RESOURCE;
+    }
+
+    private static void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Recurso de tabelas inválido");
+        }
+        readLongs(in, ZOBRIST);
+        readLongs(in, KNIGHT);
+        readLongs(in, KING);
+        for (long[] table : PAWN) {
+            readLongs(in, table);
+        }
+        for (long[] table : RAYS) {
+            readLongs(in, table);
+        }
+        if (in.read() != -1) {
+            throw new IOException("Recurso de tabelas com tamanho inválido");
+        }
+    }
+
+    private static void readLongs(DataInputStream in, long[] table) throws IOException {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = in.readLong();
+        }
+    }
+
+    private static void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        writeLongs(data, ZOBRIST);
+        writeLongs(data, KNIGHT);
+        writeLongs(data, KING);
+        for (long[] table : PAWN) {
+            writeLongs(data, table);
+        }
+        for (long[] table : RAYS) {
+            writeLongs(data, table);
+        }
+        data.flush();
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] table) throws IOException {
+        for (long value : table) {
+            out.writeLong(value);
+        }
+    }
+
+    // A semente fixa garante os mesmos hashes de antes, com ou sem o recurso
+    private static void compute() {
+        SplittableRandom random = new SplittableRandom(0x58616472657AL);
+        for (int i = 0; i < ZOBRIST.length; i++) {
+            ZOBRIST[i] = random.nextLong();
+        }
+        AttackTables tables = AttackTables.compute(8, 8);
+        System.arraycopy(tables.knight, 0, KNIGHT, 0, 64);
+        System.arraycopy(tables.king, 0, KING, 0, 64);
+        for (int i = 0; i < PAWN.length; i++) {
+            System.arraycopy(tables.pawn[i], 0, PAWN[i], 0, 64);
+        }
+        for (int i = 0; i < RAYS.length; i++) {
+            System.arraycopy(tables.rays[i], 0, RAYS[i], 0, 64);
+        }
+    }
+
+    // Gera o recurso: java chesslayer.PrecomputedTables chesslayer/tables.bin
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Uso: java chesslayer.PrecomputedTables <saida.bin>");
+            return;
+        }
+        compute();
+        Path path = Path.of(args[0]);
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(out);
+        }
+        System.out.println("Tabelas gravadas em " + path + " (" + Files.size(path) + " bytes)");
+    }
+}
@@ -0,0 +1,121 @@
+package chesslayer;
+
+// Variante de xadrez: dimensões do tabuleiro (até 16x16) e a fileira inicial das brancas,
+// espelhada para as pretas; os peões ocupam a fileira seguinte de cada lado.
+// Peças: K, Q, R, B, N, A (arcebispo = bispo + cavalo) e C (chanceler = torre + cavalo)
+public final class Variant {
+
+    public static final int MAX_SIZE = 16;
+    private static final String PIECE_TYPES = "KQRBNAC";
+
+    public static final Variant STANDARD = new Variant("Standard", 8, 8, "RNBQKBNR");
+    public static final Variant CAPABLANCA = new Variant("Capablanca", 8, 10, "RNABQKBCNR");
+    public static final Variant GOTHIC = new Variant("Gothic", 8, 10, "RNBQCKABNR");
+
+    private final String name;
+    private final int rows;
+    private final int columns;
+    private final String backRank;
+    private final int kingColumn;
+
+    private Variant(String name, int rows, int columns, String backRank) {
+        this.name = name;
+        this.rows = rows;
+        this.columns = columns;
+        this.backRank = backRank;
+        this.kingColumn = backRank.indexOf('K');
+    }
+
+    // Variante personalizada; ex: of("Grande", 10, 10, "RNBQKACBNR")
+    public static Variant of(String name, int rows, int columns, String backRank) {
+        if (rows < 6 || rows > MAX_SIZE || columns < 6 || columns > MAX_SIZE) {
+            throw new ChessException("Erro ao criar variante: o tabuleiro deve ter de 6x6 a 16x16 casas");
+        }
+        if (backRank.length() != columns) {
+            throw new ChessException("Erro ao criar variante: a fileira inicial deve ter " + columns + " peças");
+        }
+        for (int i = 0; i < backRank.length(); i++) {
+            if (PIECE_TYPES.indexOf(backRank.charAt(i)) < 0) {
+                throw new ChessException("Erro ao criar variante: peça desconhecida " + backRank.charAt(i));
+            }
+        }
+        if (backRank.indexOf('K') < 0 || backRank.indexOf('K') != backRank.lastIndexOf('K')) {
+            throw new ChessException("Erro ao criar variante: deve haver exatamente um rei");
+        }
+        if (rows == 8 && columns == 8 && backRank.equals(STANDARD.backRank)) {
+            return STANDARD;
+        }
+        return new Variant(name, rows, columns, backRank);
+    }
+
+    // Variante embutida pelo nome (sem diferenciar maiúsculas), ou null
+    public static Variant byName(String name) {
+        for (Variant variant : new Variant[] { STANDARD, CAPABLANCA, GOTHIC }) {
+            if (variant.name.equalsIgnoreCase(name)) {
+                return variant;
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    // Peças da primeira fileira, da coluna a em diante
+    public String getBackRank() {
+        return backRank;
+    }
+
+    public int getKingColumn() {
+        return kingColumn;
+    }
+
+    // Xadrez padrão: o único formato aceito pelo motor, pelo arquivo de partidas e pelo servidor
+    public boolean isStandard() {
+        return this == STANDARD;
+    }
+
+    // Letras das peças de promoção (B, N, R, Q e, se a variante os usa, A e C)
+    public String getPromotionPieces() {
+        String pieces = "BNRQ";
+        if (backRank.indexOf('A') >= 0) {
+            pieces += "A";
+        }
+        if (backRank.indexOf('C') >= 0) {
+            pieces += "C";
+        }
+        return pieces;
+    }
+
+    // Tipos de promoção, do mais forte ao mais fraco; A e C só quando a variante os usa
+    int[] promotions() {
+        boolean archbishop = backRank.indexOf('A') >= 0;
+        boolean chancellor = backRank.indexOf('C') >= 0;
+        int[] promotions = new int[4 + (archbishop ? 1 : 0) + (chancellor ? 1 : 0)];
+        int count = 0;
+        if (chancellor) {
+            promotions[count++] = ChessMove.CHANCELLOR;
+        }
+        if (archbishop) {
+            promotions[count++] = ChessMove.ARCHBISHOP;
+        }
+        for (int promotion = ChessMove.QUEEN; promotion >= ChessMove.KNIGHT; promotion--) {
+            promotions[count++] = promotion;
+        }
+        return promotions;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + columns + "x" + rows + ")";
+    }
+}
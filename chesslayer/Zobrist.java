@@ -0,0 +1,78 @@
+package chesslayer;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Chaves de Zobrist para o hash de posição, uma tabela por tamanho de tabuleiro; as chaves são fixas,
+// o que garante hashes estáveis entre execuções. O 8x8 usa as chaves de PrecomputedTables
+final class Zobrist {
+
+    static final String PIECE_TYPES = "PNBRQKAC";
+
+    private static final Map<Integer, Zobrist> CACHE = new ConcurrentHashMap<>();
+
+    private final int squares;
+    // Peça = (cor * 6 + tipo) para P..K e 12 + (cor * 2 + tipo - 6) para A e C, vezes squares + casa
+    private final long[] pieces;
+    private final long[] castling = new long[4];
+    private final long[] enPassant;
+    final long blackToMove;
+
+    private Zobrist(int rows, int columns) {
+        squares = rows * columns;
+        pieces = new long[16 * squares];
+        enPassant = new long[columns];
+        SplittableRandom random = new SplittableRandom(0x58616472657AL + rows * 32 + columns);
+        if (rows == 8 && columns == 8) {
+            // Mesma ordem do recurso: peças, roques, en passant, vez das pretas
+            long[] keys = PrecomputedTables.ZOBRIST;
+            System.arraycopy(keys, 0, pieces, 0, 12 * 64);
+            System.arraycopy(keys, 12 * 64, castling, 0, 4);
+            System.arraycopy(keys, 12 * 64 + 4, enPassant, 0, 8);
+            blackToMove = keys[12 * 64 + 12];
+            for (int i = 12 * 64; i < pieces.length; i++) {
+                pieces[i] = random.nextLong();
+            }
+        } else {
+            fill(random, pieces);
+            fill(random, castling);
+            fill(random, enPassant);
+            blackToMove = random.nextLong();
+        }
+    }
+
+    static Zobrist of(int rows, int columns) {
+        Zobrist zobrist = CACHE.get(rows * 32 + columns);
+        if (zobrist == null) {
+            zobrist = new Zobrist(rows, columns);
+            Zobrist previous = CACHE.putIfAbsent(rows * 32 + columns, zobrist);
+            if (previous != null) {
+                zobrist = previous;
+            }
+        }
+        return zobrist;
+    }
+
+    private static void fill(SplittableRandom random, long[] keys) {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    long piece(ChessPiece piece, int square) {
+        int type = PIECE_TYPES.indexOf(piece.toString().charAt(0));
+        int color = piece.getColor() == Color.WHITE ? 0 : 1;
+        int index = type < 6 ? color * 6 + type : 12 + color * 2 + type - 6;
+        return pieces[index * squares + square];
+    }
+
+    // 0 = roque pequeno branco, 1 = grande branco, 2 = pequeno preto, 3 = grande preto
+    long castling(int right) {
+        return castling[right];
+    }
+
+    long enPassant(int column) {
+        return enPassant[column];
+    }
+}
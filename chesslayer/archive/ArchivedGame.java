@@ -0,0 +1,37 @@
+package chesslayer.archive;
+
+import java.util.Collections;
+import java.util.Map;
+
+import chesslayer.ChessMatch;
+import chesslayer.MoveResult;
+
+// Partida lida do arquivo: tags (Event, White, Black, Result...) e lances codificados com ChessMove
+public class ArchivedGame {
+    
+    private Map<String, String> tags;
+    private int[] moves;
+    
+    public ArchivedGame(Map<String, String> tags, int[] moves) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.moves = moves;
+    }
+    
+    public Map<String, String> getTags() {
+        return tags;
+    }
+    
+    public int[] getMoves() {
+        return moves;
+    }
+    
+    // Reconstrói a partida aplicando os lances pelo caminho rápido
+    public ChessMatch toMatch() {
+        ChessMatch match = new ChessMatch();
+        MoveResult result = match.applyMoves(moves);
+        if (result != MoveResult.OK) {
+            throw new IllegalStateException("Partida arquivada contém lance inválido: " + result);
+        }
+        return match;
+    }
+}
@@ -0,0 +1,62 @@
+package chesslayer.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Formato binário do arquivo de partidas:
+//
+//   cabeçalho: MAGIC (int), VERSION (short)
+//   partidas:  nº de tags (byte), pares chave/valor (UTF), nº de lances (short),
+//              1 byte por lance = índice do lance em ChessMatch.legalMoves()
+//   índice:    offset (long) de cada partida
+//   rodapé:    offset do índice (long), nº de partidas (int), FOOTER_MAGIC (int)
+//
+// O rodapé fixo no fim do arquivo permite localizar a partida N diretamente.
+//
+// Ao reabrir para acrescentar, as novas partidas vão depois do rodapé antigo e um novo índice e
+// rodapé são gravados ao fechar; o índice antigo vira espaço morto. Assim o rodapé anterior continua
+// válido até o novo estar no disco, e uma gravação interrompida perde só as partidas não fechadas.
+final class GameArchive {
+    
+    static final int MAGIC = 0x58414452; // "XADR"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 6;
+    static final int FOOTER_MAGIC = 0x58494458; // "XIDX"
+    static final int FOOTER_SIZE = 16;
+    private static final int SCAN_BLOCK = 1 << 16;
+    
+    private GameArchive() {
+    }
+    
+    // Posição do último rodapé válido: o do fim do arquivo ou, se uma gravação foi interrompida,
+    // o do último fechamento, procurado de trás para frente; -1 se não houver nenhum
+    static long lastFooter(FileChannel channel) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK + FOOTER_SIZE);
+        long end = channel.size();
+        while (end - FOOTER_SIZE >= HEADER_SIZE) {
+            long start = Math.max(HEADER_SIZE, end - block.capacity());
+            block.clear().limit((int) (end - start));
+            while (block.hasRemaining()) {
+                if (channel.read(block, start + block.position()) < 0) {
+                    throw new IOException("Arquivo de partidas truncado");
+                }
+            }
+            for (int i = block.limit() - FOOTER_SIZE; i >= 0; i--) {
+                if (block.getInt(i + 12) == FOOTER_MAGIC) {
+                    long indexOffset = block.getLong(i);
+                    int count = block.getInt(i + 8);
+                    if (count >= 0 && indexOffset >= HEADER_SIZE && indexOffset + count * 8L == start + i) {
+                        return start + i;
+                    }
+                }
+            }
+            if (start == HEADER_SIZE) {
+                break;
+            }
+            // A próxima janela cobre os rodapés que começam antes desta
+            end = start + FOOTER_SIZE - 1;
+        }
+        return -1;
+    }
+}
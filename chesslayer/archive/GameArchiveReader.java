@@ -0,0 +1,123 @@
+package chesslayer.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import chesslayer.ChessMatch;
+import chesslayer.MoveResult;
+
+// Leitura com acesso aleatório: o arquivo é mapeado em memória e a partida N
+// é localizada pelo índice do rodapé, sem percorrer as anteriores. Arquivos maiores que 2 GB
+// são mapeados em vários pedaços
+public class GameArchiveReader implements Closeable {
+    
+    // Cada pedaço se estende além do seguinte por mais que o maior registro possível (255 tags de
+    // até 64 KB e 65535 lances, ~33 MB): uma partida sempre cabe inteira no pedaço onde começa
+    private static final long CHUNK_SIZE = 1L << 30;
+    private static final long CHUNK_OVERLAP = 64L << 20;
+    
+    private FileChannel channel;
+    private MappedByteBuffer[] chunks;
+    private long indexOffset;
+    private int count;
+    
+    public GameArchiveReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size < GameArchive.HEADER_SIZE) {
+            channel.close();
+            throw new IOException("Arquivo de partidas inválido");
+        }
+        chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+        for (int c = 0; c < chunks.length; c++) {
+            long start = c * CHUNK_SIZE;
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE + CHUNK_OVERLAP, size - start));
+        }
+        if (chunks[0].getInt(0) != GameArchive.MAGIC || chunks[0].getShort(4) != GameArchive.VERSION) {
+            channel.close();
+            throw new IOException("Arquivo de partidas inválido");
+        }
+        // Se uma gravação foi interrompida, vale o rodapé do último fechamento
+        long footer = GameArchive.lastFooter(channel);
+        if (footer < 0 && size < GameArchive.HEADER_SIZE + GameArchive.FOOTER_SIZE) {
+            // Só o cabeçalho: a criação foi interrompida antes do primeiro rodapé
+            return;
+        }
+        if (footer < 0) {
+            channel.close();
+            throw new IOException("Arquivo de partidas inválido: nenhum índice encontrado");
+        }
+        ByteBuffer in = at(footer);
+        indexOffset = in.getLong();
+        count = in.getInt();
+    }
+    
+    public int getGameCount() {
+        return count;
+    }
+    
+    public ArchivedGame game(int n) {
+        ByteBuffer in = seek(n);
+        Map<String, String> tags = readTags(in);
+        int plies = Short.toUnsignedInt(in.getShort());
+        int[] moves = new int[plies];
+        ChessMatch replay = new ChessMatch();
+        for (int i = 0; i < plies; i++) {
+            int[] legal = replay.legalMoves();
+            int index = Byte.toUnsignedInt(in.get());
+            if (index >= legal.length || replay.applyMove(legal[index]) != MoveResult.OK) {
+                throw new IllegalStateException("Partida " + n + " corrompida no lance " + (i + 1));
+            }
+            moves[i] = legal[index];
+        }
+        return new ArchivedGame(tags, moves);
+    }
+    
+    // Lê apenas as tags, sem decodificar os lances
+    public Map<String, String> tags(int n) {
+        return readTags(seek(n));
+    }
+    
+    private ByteBuffer seek(int n) {
+        if (n < 0 || n >= count) {
+            throw new IndexOutOfBoundsException("Partida inexistente no arquivo: " + n);
+        }
+        return at(at(indexOffset + n * 8L).getLong());
+    }
+    
+    // Visão posicionada no offset, dentro do pedaço onde ele começa
+    private ByteBuffer at(long offset) {
+        ByteBuffer in = chunks[(int) (offset / CHUNK_SIZE)].duplicate();
+        in.position((int) (offset % CHUNK_SIZE));
+        return in;
+    }
+    
+    private static Map<String, String> readTags(ByteBuffer in) {
+        int tagCount = Byte.toUnsignedInt(in.get());
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (int i = 0; i < tagCount; i++) {
+            tags.put(readUTF(in), readUTF(in));
+        }
+        return tags;
+    }
+    
+    // Compatível com DataOutputStream.writeUTF para os caracteres usados nas tags
+    private static String readUTF(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,186 @@
+package chesslayer.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import chesslayer.ChessMatch;
+import chesslayer.MoveResult;
+
+// Acrescenta partidas ao fim do arquivo; os dados existentes nunca são reescritos: as partidas
+// novas vão depois do rodapé atual e um novo índice e rodapé são gravados ao fechar
+public class GameArchiveWriter implements Closeable {
+    
+    private FileChannel channel;
+    private long[] offsets;
+    private int count;
+    private long position;
+    private boolean dirty;
+    
+    public GameArchiveWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            create();
+        } else {
+            readIndex();
+        }
+    }
+    
+    // Cabeçalho e um rodapé de 0 partidas, já no disco: o arquivo é legível mesmo que o processo
+    // termine antes do primeiro close()
+    private void create() throws IOException {
+        ByteBuffer empty = ByteBuffer.allocate(GameArchive.HEADER_SIZE + GameArchive.FOOTER_SIZE);
+        empty.putInt(GameArchive.MAGIC).putShort(GameArchive.VERSION);
+        empty.putLong(GameArchive.HEADER_SIZE).putInt(0).putInt(GameArchive.FOOTER_MAGIC).flip();
+        writeFully(empty, 0);
+        channel.truncate(empty.capacity());
+        channel.force(true);
+        offsets = new long[16];
+        count = 0;
+        position = empty.capacity();
+    }
+    
+    public int getGameCount() {
+        return count;
+    }
+    
+    // Grava a partida e retorna seu número dentro do arquivo
+    public int append(ChessMatch match, Map<String, String> tags) throws IOException {
+        if (!match.getVariant().isStandard()) {
+            throw new IllegalArgumentException("O arquivo só guarda partidas de xadrez padrão");
+        }
+        return append(match.getMoves(), tags);
+    }
+    
+    public int append(int[] moves, Map<String, String> tags) throws IOException {
+        if (tags.size() > 255) {
+            throw new IllegalArgumentException("Máximo de 255 tags por partida");
+        }
+        if (moves.length > 0xFFFF) {
+            throw new IllegalArgumentException("Máximo de 65535 lances por partida");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + moves.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(tags.size());
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            out.writeUTF(tag.getKey());
+            out.writeUTF(tag.getValue());
+        }
+        out.writeShort(moves.length);
+        out.write(encodeMoves(moves));
+        
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count] = position;
+        writeFully(ByteBuffer.wrap(bytes.toByteArray()), position);
+        position += bytes.size();
+        dirty = true;
+        return count++;
+    }
+    
+    // Cada lance vira seu índice na lista de lances legais da posição
+    private static byte[] encodeMoves(int[] moves) {
+        byte[] encoded = new byte[moves.length];
+        ChessMatch replay = new ChessMatch();
+        for (int i = 0; i < moves.length; i++) {
+            int[] legal = replay.legalMoves();
+            int index = indexOf(legal, moves[i]);
+            if (index < 0 || replay.applyMove(moves[i]) != MoveResult.OK) {
+                throw new IllegalArgumentException("Lance ilegal na posição " + (i + 1) + " da partida");
+            }
+            encoded[i] = (byte) index;
+        }
+        return encoded;
+    }
+    
+    private static int indexOf(int[] legal, int move) {
+        for (int i = 0; i < legal.length; i++) {
+            if (legal[i] == move) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // Lê o índice do último rodapé válido; partidas gravadas depois dele por uma execução que não
+    // fechou o arquivo são descartadas
+    private void readIndex() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_SIZE);
+        readFully(header, 0);
+        if (header.getInt(0) != GameArchive.MAGIC || header.getShort(4) != GameArchive.VERSION) {
+            throw new IOException("Arquivo de partidas inválido");
+        }
+        long footerOffset = GameArchive.lastFooter(channel);
+        if (footerOffset < 0 && channel.size() < GameArchive.HEADER_SIZE + GameArchive.FOOTER_SIZE) {
+            // Criação interrompida antes do primeiro rodapé: arquivo vazio
+            create();
+            return;
+        }
+        if (footerOffset < 0) {
+            throw new IOException("Arquivo de partidas inválido: nenhum índice encontrado");
+        }
+        ByteBuffer footer = ByteBuffer.allocate(GameArchive.FOOTER_SIZE);
+        readFully(footer, footerOffset);
+        footer.flip();
+        long indexOffset = footer.getLong();
+        count = footer.getInt();
+        ByteBuffer index = ByteBuffer.allocate(count * 8);
+        readFully(index, indexOffset);
+        index.flip();
+        offsets = new long[Math.max(16, count * 2)];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = index.getLong();
+        }
+        position = footerOffset + GameArchive.FOOTER_SIZE;
+        if (channel.size() > position) {
+            channel.truncate(position);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!dirty) {
+                return;
+            }
+            ByteBuffer index = ByteBuffer.allocate(count * 8);
+            for (int i = 0; i < count; i++) {
+                index.putLong(offsets[i]);
+            }
+            index.flip();
+            writeFully(index, position);
+            // Partidas e índice vão para o disco antes do rodapé que os torna válidos
+            channel.force(false);
+            ByteBuffer footer = ByteBuffer.allocate(GameArchive.FOOTER_SIZE);
+            footer.putLong(position).putInt(count).putInt(GameArchive.FOOTER_MAGIC).flip();
+            writeFully(footer, position + count * 8L);
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+    
+    private void writeFully(ByteBuffer buffer, long at) throws IOException {
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+    }
+    
+    private void readFully(ByteBuffer buffer, long at) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, at);
+            if (n < 0) {
+                throw new IOException("Arquivo de partidas truncado");
+            }
+            at += n;
+        }
+    }
+}
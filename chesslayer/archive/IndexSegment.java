@@ -0,0 +1,154 @@
+package chesslayer.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Segmento do índice de posições: cabeçalho (MAGIC, reservado, nº de entradas) seguido de
+// entradas de 16 bytes (hash, partida << 16 | ply) ordenadas por hash
+class IndexSegment implements Closeable {
+    
+    static final int MAGIC = 0x58504F53; // "XPOS"
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 16;
+    // Cada segmento é mapeado inteiro, então fica abaixo de 2 GB
+    static final int MAX_ENTRIES = (Integer.MAX_VALUE - HEADER_SIZE) / ENTRY_SIZE;
+    
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".idx";
+    
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int count;
+    
+    IndexSegment(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException("Segmento de índice inválido: " + path);
+        }
+        count = (int) buffer.getLong(8);
+    }
+    
+    int getCount() {
+        return count;
+    }
+    
+    long hash(int i) {
+        return buffer.getLong(HEADER_SIZE + i * ENTRY_SIZE);
+    }
+    
+    long value(int i) {
+        return buffer.getLong(HEADER_SIZE + i * ENTRY_SIZE + 8);
+    }
+    
+    // Primeira entrada com hash >= ao procurado (busca binária)
+    int lowerBound(long hash) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (hash(mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    static List<Path> list(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+    
+    static Path next(Path directory) throws IOException {
+        return next(directory, 0);
+    }
+    
+    // Próximo segmento com número maior que o de todos os existentes e que minimum
+    static Path next(Path directory, int minimum) throws IOException {
+        int number = minimum;
+        for (Path path : list(directory)) {
+            number = Math.max(number, number(path));
+        }
+        return directory.resolve(String.format("%s%08d%s", PREFIX, number + 1, SUFFIX));
+    }
+    
+    static int number(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+    
+    // Grava entradas já ordenadas num arquivo temporário e o publica com rename atômico
+    static class Writer implements Closeable {
+        
+        private Path path;
+        private Path temp;
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private long count;
+        
+        Writer(Path path) throws IOException {
+            this.path = path;
+            temp = path.resolveSibling(path.getFileName() + ".tmp");
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putInt(MAGIC).putInt(0).putLong(0);
+        }
+        
+        long getCount() {
+            return count;
+        }
+        
+        void write(long hash, long value) throws IOException {
+            if (buffer.remaining() < ENTRY_SIZE) {
+                drain();
+            }
+            buffer.putLong(hash).putLong(value);
+            count++;
+        }
+        
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                ByteBuffer header = ByteBuffer.allocate(8).putLong(0, count);
+                channel.write(header, 8);
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
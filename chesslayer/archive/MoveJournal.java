@@ -0,0 +1,423 @@
+package chesslayer.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import chesslayer.ChessMatch;
+import chesslayer.MoveListener;
+import chesslayer.MoveResult;
+import chesslayer.PositionSnapshot;
+
+// Journal de lances (write-ahead) compartilhado por todas as partidas do servidor.
+//
+// Cada lance vira um registro fixo de 16 bytes: partida (int), ply (short), lance (short), tipo (byte),
+// 3 bytes reservados e CRC32 dos 12 primeiros. Os registros se acumulam em memória e uma thread
+// grava e faz fsync de todos de uma vez a cada intervalo (group commit). A troca de buffers é feita
+// sob o monitor, mas a gravação e o fsync não: append() continua enchendo o outro buffer.
+//
+// checkpoint() grava o estado de todas as partidas em checkpoint-N.bin e passa a escrever em
+// journal-N.log; recover() carrega o último checkpoint e reaplica o journal correspondente.
+public class MoveJournal implements Closeable {
+    
+    public static final byte MOVE = 1;
+    public static final byte TAKEBACK = 2;
+    public static final byte END = 3;
+    
+    static final int RECORD_SIZE = 16;
+    private static final int CHECKPOINT_MAGIC = 0x58434B50; // "XCKP"
+    private static final int BUFFER_RECORDS = 1 << 16;
+    
+    private final Path directory;
+    private final long groupCommitMillis;
+    private final Map<Integer, MoveListener> listeners = new ConcurrentHashMap<>();
+    // Estado espelhado das partidas ativas, para gerar checkpoints sem acessar as ChessMatch
+    private final Map<Integer, int[]> games;
+    
+    private FileChannel channel;
+    private int segment;
+    private ByteBuffer active = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+    private ByteBuffer flushing = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+    // close() terminou a última gravação e fechou o canal; só então awaitDurable() desiste
+    private boolean terminated;
+    // O flusher está gravando o buffer flushing fora do monitor; checkpoint() espera terminar
+    private boolean writing;
+    private final Thread flusher;
+    private final CRC32 crc = new CRC32();
+    
+    // Recupera o diretório (se houver dados) e inicia um novo segmento a partir de um checkpoint
+    public MoveJournal(Path directory, long groupCommitMillis) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.groupCommitMillis = groupCommitMillis;
+        games = load(directory);
+        segment = latestCheckpoint(directory);
+        rotate();
+        flusher = new Thread(this::flushLoop, "move-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+    
+    // Registra os lances já jogados e todos os seguintes da partida
+    public void attach(int gameId, ChessMatch match) {
+        if (!match.getVariant().isStandard()) {
+            throw new IllegalArgumentException("O diário só registra partidas de xadrez padrão");
+        }
+        int[] played = match.getMoves();
+        for (int i = 0; i < played.length; i++) {
+            append(gameId, i + 1, played[i], MOVE);
+        }
+        MoveListener listener = new MoveListener() {
+            @Override
+            public void moveMade(ChessMatch m, int ply, int move, PositionSnapshot snapshot) {
+                append(gameId, ply, move, MOVE);
+            }
+            
+            @Override
+            public void moveTakenBack(ChessMatch m, int ply, PositionSnapshot snapshot) {
+                append(gameId, ply, 0, TAKEBACK);
+            }
+        };
+        listeners.put(gameId, listener);
+        match.addMoveListener(listener);
+    }
+    
+    // Encerra a partida: ela deixa de ser recuperada
+    public long detach(int gameId, ChessMatch match) {
+        MoveListener listener = listeners.remove(gameId);
+        if (listener != null) {
+            match.removeMoveListener(listener);
+        }
+        return append(gameId, 0, 0, END);
+    }
+    
+    // Enfileira o registro e retorna seu número de sequência (para awaitDurable)
+    public synchronized long append(int gameId, int ply, int move, byte type) {
+        while (!active.hasRemaining() && !closed && failure == null) {
+            // Buffer cheio: espera a próxima gravação em vez de crescer sem limite
+            notifyAll();
+            waitUninterruptibly();
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal fechado");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Falha ao gravar o journal", failure);
+        }
+        int start = active.position();
+        active.putInt(gameId).putShort((short) ply).putShort((short) move).put(type).put((byte) 0).putShort((short) 0);
+        crc.reset();
+        crc.update(active.array(), start, RECORD_SIZE - 4);
+        active.putInt((int) crc.getValue());
+        apply(games, gameId, ply, move, type);
+        return ++appendedSequence;
+    }
+    
+    // Bloqueia até o registro estar em disco (fsync)
+    public synchronized void awaitDurable(long sequence) throws IOException {
+        while (durableSequence < sequence && failure == null && !terminated) {
+            waitUninterruptibly();
+        }
+        if (durableSequence < sequence) {
+            throw failure != null ? failure : new IOException("Journal fechado antes da gravação");
+        }
+    }
+    
+    // Grava o estado atual num novo checkpoint e descarta os segmentos anteriores
+    public synchronized void checkpoint() throws IOException {
+        while (writing) {
+            waitUninterruptibly();
+        }
+        writeActive();
+        rotate();
+    }
+    
+    private void rotate() throws IOException {
+        int next = segment + 1;
+        Path temp = directory.resolve("checkpoint.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(games.size());
+            for (Map.Entry<Integer, int[]> game : games.entrySet()) {
+                int[] moves = game.getValue();
+                out.writeInt(game.getKey());
+                out.writeShort(moves[0]);
+                for (int i = 1; i <= moves[0]; i++) {
+                    out.writeShort(moves[i]);
+                }
+            }
+        }
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            file.force(true);
+        }
+        FileChannel newChannel = FileChannel.open(journalPath(directory, next),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Files.move(temp, checkpointPath(directory, next), StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+        if (channel != null) {
+            channel.close();
+        }
+        channel = newChannel;
+        for (int old = segment; old >= 0 && old > segment - 2; old--) {
+            Files.deleteIfExists(checkpointPath(directory, old));
+            Files.deleteIfExists(journalPath(directory, old));
+        }
+        segment = next;
+    }
+    
+    // O rename do checkpoint só sobrevive a uma queda depois do fsync do diretório
+    private void forceDirectory() throws IOException {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (AccessDeniedException e) {
+            // O Windows não abre diretórios como arquivo; lá o rename já é registrado pelo NTFS
+        }
+    }
+    
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long sequence;
+            FileChannel target;
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + groupCommitMillis;
+                long remaining;
+                while (!closed && active.position() < active.capacity() 
+                       && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed && active.position() == 0) {
+                    return;
+                }
+                if (active.position() == 0) {
+                    continue;
+                }
+                batch = swap();
+                sequence = appendedSequence;
+                target = channel;
+                writing = true;
+                // Quem esperava o buffer cheio já pode continuar no outro
+                notifyAll();
+            }
+            IOException error = null;
+            try {
+                write(target, batch);
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (this) {
+                writing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSequence = sequence;
+                }
+                notifyAll();
+                if (error != null) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    // Troca os buffers e retorna o lote a gravar
+    private ByteBuffer swap() {
+        ByteBuffer batch = active;
+        active = flushing;
+        flushing = batch;
+        return batch;
+    }
+    
+    // Grava o lote e faz um único fsync para todos os registros
+    private static void write(FileChannel target, ByteBuffer batch) throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            target.write(batch);
+        }
+        batch.clear();
+        target.force(false);
+    }
+    
+    // Gravação síncrona, sob o monitor, usada pelo checkpoint e pelo fechamento
+    private void writeActive() throws IOException {
+        if (active.position() == 0) {
+            return;
+        }
+        long sequence = appendedSequence;
+        write(channel, swap());
+        durableSequence = sequence;
+        notifyAll();
+    }
+    
+    private void waitUninterruptibly() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                if (failure == null) {
+                    writeActive();
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            } finally {
+                try {
+                    channel.close();
+                } finally {
+                    terminated = true;
+                    notifyAll();
+                }
+            }
+        }
+    }
+    
+    // Reconstrói as partidas ativas: último checkpoint + registros válidos do journal seguinte
+    public static Map<Integer, ChessMatch> recover(Path directory) throws IOException {
+        Map<Integer, ChessMatch> matches = new TreeMap<>();
+        for (Map.Entry<Integer, int[]> game : load(directory).entrySet()) {
+            int[] moves = game.getValue();
+            ChessMatch match = new ChessMatch();
+            if (match.applyMoves(Arrays.copyOfRange(moves, 1, moves[0] + 1)) != MoveResult.OK) {
+                throw new IOException("Journal contém lance inválido na partida " + game.getKey());
+            }
+            matches.put(game.getKey(), match);
+        }
+        return matches;
+    }
+    
+    private static Map<Integer, int[]> load(Path directory) throws IOException {
+        Map<Integer, int[]> games = new HashMap<>();
+        int segment = latestCheckpoint(directory);
+        if (segment == 0) {
+            return games;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointPath(directory, segment))))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("Checkpoint inválido: " + checkpointPath(directory, segment));
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                int plies = in.readUnsignedShort();
+                int[] moves = new int[plies + 1];
+                moves[0] = plies;
+                for (int j = 1; j <= plies; j++) {
+                    moves[j] = in.readUnsignedShort();
+                }
+                games.put(id, moves);
+            }
+        }
+        Path journal = journalPath(directory, segment);
+        if (Files.exists(journal)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(journal))) {
+                byte[] record = new byte[RECORD_SIZE];
+                CRC32 crc = new CRC32();
+                while (readRecord(in, record)) {
+                    ByteBuffer r = ByteBuffer.wrap(record);
+                    crc.reset();
+                    crc.update(record, 0, RECORD_SIZE - 4);
+                    if (r.getInt(RECORD_SIZE - 4) != (int) crc.getValue()) {
+                        break; // Cauda incompleta de uma gravação interrompida
+                    }
+                    apply(games, r.getInt(0), Short.toUnsignedInt(r.getShort(4)), Short.toUnsignedInt(r.getShort(6)), r.get(8));
+                }
+            }
+        }
+        return games;
+    }
+    
+    private static boolean readRecord(InputStream in, byte[] record) throws IOException {
+        int read = 0;
+        while (read < record.length) {
+            int n = in.read(record, read, record.length - read);
+            if (n < 0) {
+                return false; // Registro parcial no fim do arquivo é descartado
+            }
+            read += n;
+        }
+        return true;
+    }
+    
+    // moves[0] guarda o número de lances; um MOVE no mesmo ply substitui o lance (promoção escolhida depois)
+    private static void apply(Map<Integer, int[]> games, int gameId, int ply, int move, byte type) {
+        if (type == END) {
+            games.remove(gameId);
+            return;
+        }
+        int[] moves = games.computeIfAbsent(gameId, id -> new int[16]);
+        if (type == TAKEBACK) {
+            moves[0] = Math.min(moves[0], ply);
+            return;
+        }
+        if (ply >= moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+            games.put(gameId, moves);
+        }
+        moves[ply] = move;
+        moves[0] = ply;
+    }
+    
+    private static int latestCheckpoint(Path directory) throws IOException {
+        int latest = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "checkpoint-*.bin")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                latest = Math.max(latest, Integer.parseInt(name.substring("checkpoint-".length(), name.length() - ".bin".length())));
+            }
+        }
+        return latest;
+    }
+    
+    private static Path checkpointPath(Path directory, int segment) {
+        return directory.resolve(String.format("checkpoint-%08d.bin", segment));
+    }
+    
+    private static Path journalPath(Path directory, int segment) {
+        return directory.resolve(String.format("journal-%08d.log", segment));
+    }
+}
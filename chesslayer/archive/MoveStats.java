@@ -0,0 +1,60 @@
+package chesslayer.archive;
+
+// Estatísticas de um lance numa posição do explorador de aberturas
+public class MoveStats {
+    
+    private int move;
+    private int games;
+    private int whiteWins;
+    private int draws;
+    private int ratedGames;
+    private long ratingSum;
+    
+    public MoveStats(int move, int games, int whiteWins, int draws, int ratedGames, long ratingSum) {
+        this.move = move;
+        this.games = games;
+        this.whiteWins = whiteWins;
+        this.draws = draws;
+        this.ratedGames = ratedGames;
+        this.ratingSum = ratingSum;
+    }
+    
+    // Lance codificado com ChessMove
+    public int getMove() {
+        return move;
+    }
+    
+    public int getGames() {
+        return games;
+    }
+    
+    public int getWhiteWins() {
+        return whiteWins;
+    }
+    
+    public int getDraws() {
+        return draws;
+    }
+    
+    public int getBlackWins() {
+        return games - whiteWins - draws;
+    }
+    
+    // Média do rating dos jogadores nas partidas com WhiteElo/BlackElo, ou -1 se não houver nenhuma
+    public int getAverageRating() {
+        return ratedGames == 0 ? -1 : (int) (ratingSum / ratedGames);
+    }
+    
+    int getRatedGames() {
+        return ratedGames;
+    }
+    
+    long getRatingSum() {
+        return ratingSum;
+    }
+    
+    @Override
+    public String toString() {
+        return games + " partidas (+" + whiteWins + " =" + draws + " -" + getBlackWins() + ")";
+    }
+}
@@ -0,0 +1,188 @@
+package chesslayer.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import chesslayer.ChessMatch;
+
+// Explorador de aberturas: estatísticas por (posição, lance) num arquivo mapeado em memória.
+// Cabeçalho (MAGIC, versão, nº de entradas, última descarga incluída) seguido de entradas de
+// 36 bytes (hash, lance, partidas, vitórias das brancas, empates, partidas com rating, soma dos
+// ratings) ordenadas por hash e lance. Acima de 2 GB o arquivo é mapeado em vários pedaços
+public class OpeningExplorer implements Closeable {
+    
+    static final int MAGIC = 0x584F504E; // "XOPN"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int ENTRY_SIZE = 36;
+    static final String FILE_NAME = "explorer.bin";
+    private static final int CHUNK_ENTRIES = Integer.MAX_VALUE / ENTRY_SIZE;
+    
+    private FileChannel channel;
+    private MappedByteBuffer[] chunks;
+    private long count;
+    private int lastSpill;
+    
+    // Aceita o diretório do explorador ou o próprio arquivo
+    public OpeningExplorer(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            path = path.resolve(FILE_NAME);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Explorador de aberturas inválido: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Explorador de aberturas inválido: " + path);
+            }
+            count = header.getLong(8);
+            lastSpill = header.getInt(16);
+            if (channel.size() != HEADER_SIZE + count * ENTRY_SIZE) {
+                throw new IOException("Explorador de aberturas com tamanho inválido: " + path);
+            }
+            chunks = new MappedByteBuffer[(int) ((count + CHUNK_ENTRIES - 1) / CHUNK_ENTRIES)];
+            for (int c = 0; c < chunks.length; c++) {
+                long first = (long) c * CHUNK_ENTRIES;
+                long entries = Math.min(CHUNK_ENTRIES, count - first);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * ENTRY_SIZE, entries * ENTRY_SIZE);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    // Número de pares (posição, lance)
+    public long size() {
+        return count;
+    }
+    
+    // Número da última descarga do builder já somada a este arquivo
+    int getLastSpill() {
+        return lastSpill;
+    }
+    
+    public List<MoveStats> moves(ChessMatch match) {
+        return moves(match.getPositionHash());
+    }
+    
+    // Lances jogados na posição, do mais frequente ao menos frequente
+    public List<MoveStats> moves(long hash) {
+        List<MoveStats> moves = new ArrayList<>();
+        for (long i = lowerBound(hash); i < count && hash(i) == hash; i++) {
+            moves.add(entry(i));
+        }
+        moves.sort((a, b) -> Integer.compare(b.getGames(), a.getGames()));
+        return moves;
+    }
+    
+    long hash(long i) {
+        return chunk(i).getLong(offset(i));
+    }
+    
+    MoveStats entry(long i) {
+        ByteBuffer chunk = chunk(i);
+        int offset = offset(i);
+        return new MoveStats(chunk.getInt(offset + 8), chunk.getInt(offset + 12), chunk.getInt(offset + 16),
+                             chunk.getInt(offset + 20), chunk.getInt(offset + 24), chunk.getLong(offset + 28));
+    }
+    
+    private ByteBuffer chunk(long i) {
+        return chunks[(int) (i / CHUNK_ENTRIES)];
+    }
+    
+    private static int offset(long i) {
+        return (int) (i % CHUNK_ENTRIES) * ENTRY_SIZE;
+    }
+    
+    // Primeira entrada com hash >= ao procurado (busca binária)
+    private long lowerBound(long hash) {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (hash(mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    // Grava entradas já ordenadas num arquivo temporário e o publica com rename atômico no commit()
+    static class Writer implements Closeable {
+        
+        private Path path;
+        private Path temp;
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private long count;
+        private int lastSpill;
+        private boolean committed;
+        
+        Writer(Path path, int lastSpill) throws IOException {
+            this.path = path;
+            this.lastSpill = lastSpill;
+            temp = path.resolveSibling(path.getFileName() + ".tmp");
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(0).putInt(lastSpill).putInt(0);
+        }
+        
+        long getCount() {
+            return count;
+        }
+        
+        void write(long hash, int move, int games, int whiteWins, int draws, int ratedGames, long ratingSum) throws IOException {
+            if (buffer.remaining() < ENTRY_SIZE) {
+                drain();
+            }
+            buffer.putLong(hash).putInt(move).putInt(games).putInt(whiteWins).putInt(draws).putInt(ratedGames).putLong(ratingSum);
+            count++;
+        }
+        
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        // Completa o cabeçalho e publica; sem commit, close() descarta o temporário e o arquivo
+        // anterior continua valendo
+        void commit() throws IOException {
+            drain();
+            ByteBuffer header = ByteBuffer.allocate(12).putLong(0, count).putInt(8, lastSpill);
+            channel.write(header, 8);
+            channel.force(true);
+            channel.close();
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
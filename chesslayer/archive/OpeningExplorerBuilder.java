@@ -0,0 +1,372 @@
+package chesslayer.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import chesslayer.ChessMatch;
+import chesslayer.MoveResult;
+
+// Monta o explorador de aberturas por ordenação externa. As partidas são reproduzidas e cada
+// posição até maxPly emite a tupla (hash, lance, resultado, rating) num buffer de tamanho fixo;
+// cheio, o buffer é ordenado e gravado como descarga (segmento ordenado em spill/). merge()
+// intercala as descargas com o arquivo atual (k-way, no máximo MAX_FAN_IN arquivos abertos por
+// passada), somando as tuplas de cada (posição, lance), e publica o novo arquivo. Partidas novas
+// entram com outro builder no mesmo diretório e outro merge(), sem reprocessar as antigas.
+// Só um builder por diretório de cada vez
+public class OpeningExplorerBuilder implements Closeable {
+    
+    public static final int DEFAULT_MAX_PLY = 40;
+    private static final int DEFAULT_BUFFER_ENTRIES = 1 << 22;
+    static final int MAX_FAN_IN = 64;
+    static final String SPILL_DIRECTORY = "spill";
+    private static final String PARTIAL_PREFIX = "partial-";
+    
+    // Valor da tupla: lance << 16 | resultado << 14 | rating (0 = sem rating)
+    private static final int RESULT_SHIFT = 14;
+    private static final int MAX_RATING = (1 << RESULT_SHIFT) - 1;
+    private static final int WHITE_WINS = 0;
+    private static final int DRAW = 1;
+    private static final int BLACK_WINS = 2;
+    
+    private Path directory;
+    private Path spillDirectory;
+    private int maxPly;
+    private int lastSpill;
+    private long[] hashes;
+    private long[] values;
+    private int size;
+    private long games;
+    private long skipped;
+    private long invalid;
+    
+    public OpeningExplorerBuilder(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_PLY, DEFAULT_BUFFER_ENTRIES);
+    }
+    
+    public OpeningExplorerBuilder(Path directory, int maxPly, int bufferEntries) throws IOException {
+        this.directory = directory;
+        spillDirectory = directory.resolve(SPILL_DIRECTORY);
+        Files.createDirectories(spillDirectory);
+        this.maxPly = maxPly;
+        // As descargas são numeradas depois das já somadas ao arquivo, que merge() ignora
+        lastSpill = storedLastSpill(directory);
+        hashes = new long[bufferEntries];
+        values = new long[bufferEntries];
+    }
+    
+    public long getGames() {
+        return games;
+    }
+    
+    // Partidas sem resultado final (Result diferente de 1-0, 0-1 e 1/2-1/2)
+    public long getSkipped() {
+        return skipped;
+    }
+    
+    // Partidas ignoradas por conter um lance inválido
+    public long getInvalid() {
+        return invalid;
+    }
+    
+    public void addArchive(GameArchiveReader archive) throws IOException {
+        for (int i = 0; i < archive.getGameCount(); i++) {
+            ArchivedGame game = archive.game(i);
+            addGame(game.getTags(), game.getMoves());
+        }
+    }
+    
+    // Usa as tags Result, WhiteElo e BlackElo; devolve false se a partida não tem resultado ou
+    // contém lance inválido. A partida é reproduzida inteira antes de entrar no buffer, para que
+    // uma inválida não deixe tuplas parciais nas descargas
+    public boolean addGame(Map<String, String> tags, int[] moves) throws IOException {
+        int result = result(tags.get("Result"));
+        if (result < 0) {
+            skipped++;
+            return false;
+        }
+        int plies = Math.min(moves.length, maxPly);
+        long[] gameHashes = new long[plies];
+        ChessMatch replay = new ChessMatch();
+        for (int ply = 0; ply < plies; ply++) {
+            gameHashes[ply] = replay.getPositionHash();
+            if (replay.applyMove(moves[ply]) != MoveResult.OK) {
+                invalid++;
+                return false;
+            }
+        }
+        long value = (long) result << RESULT_SHIFT | rating(tags);
+        for (int ply = 0; ply < plies; ply++) {
+            if (size == hashes.length) {
+                flush();
+            }
+            hashes[size] = gameHashes[ply];
+            values[size] = (long) moves[ply] << 16 | value;
+            size++;
+        }
+        games++;
+        return true;
+    }
+    
+    private static int result(String result) {
+        if ("1-0".equals(result)) {
+            return WHITE_WINS;
+        }
+        if ("1/2-1/2".equals(result)) {
+            return DRAW;
+        }
+        if ("0-1".equals(result)) {
+            return BLACK_WINS;
+        }
+        return -1;
+    }
+    
+    // Média dos ratings presentes, ou 0
+    private static int rating(Map<String, String> tags) {
+        int sum = 0;
+        int count = 0;
+        for (String tag : new String[] { "WhiteElo", "BlackElo" }) {
+            try {
+                int rating = Integer.parseInt(tags.getOrDefault(tag, ""));
+                if (rating > 0) {
+                    sum += rating;
+                    count++;
+                }
+            } catch (NumberFormatException e) {
+                // rating ausente ou "?"
+            }
+        }
+        return count == 0 ? 0 : Math.min(sum / count, MAX_RATING);
+    }
+    
+    public void flush() throws IOException {
+        if (size == 0) {
+            return;
+        }
+        PositionIndexBuilder.sort(hashes, values, 0, size - 1);
+        // Um merge() feito enquanto este builder estava aberto pode ter somado descargas com números
+        // acima do lastSpill lido no construtor; reutilizá-los faria o próximo merge() apagar esta
+        lastSpill = Math.max(lastSpill, storedLastSpill(directory));
+        Path path = IndexSegment.next(spillDirectory, lastSpill);
+        try (IndexSegment.Writer writer = new IndexSegment.Writer(path)) {
+            for (int i = 0; i < size; i++) {
+                writer.write(hashes[i], values[i]);
+            }
+        }
+        lastSpill = IndexSegment.number(path);
+        size = 0;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+    
+    private static int storedLastSpill(Path directory) throws IOException {
+        if (!Files.exists(directory.resolve(OpeningExplorer.FILE_NAME))) {
+            return 0;
+        }
+        try (OpeningExplorer explorer = new OpeningExplorer(directory)) {
+            return explorer.getLastSpill();
+        }
+    }
+    
+    // Soma as descargas pendentes ao arquivo do explorador. O novo arquivo guarda o número da
+    // última descarga incluída e é publicado antes de as descargas serem apagadas: se o processo
+    // cair no meio, o próximo merge() descarta as que já foram somadas em vez de contá-las de novo
+    public static void merge(Path directory) throws IOException {
+        Path spillDirectory = directory.resolve(SPILL_DIRECTORY);
+        Files.createDirectories(spillDirectory);
+        for (Path partial : partials(spillDirectory)) {
+            Files.delete(partial);
+        }
+        int merged = storedLastSpill(directory);
+        List<Path> inputs = new ArrayList<>();
+        List<Path> done = new ArrayList<>();
+        int lastSpill = merged;
+        for (Path spill : IndexSegment.list(spillDirectory)) {
+            if (IndexSegment.number(spill) <= merged) {
+                done.add(spill);
+            } else {
+                inputs.add(spill);
+                lastSpill = Math.max(lastSpill, IndexSegment.number(spill));
+            }
+        }
+        if (!inputs.isEmpty()) {
+            List<Path> originals = new ArrayList<>(inputs);
+            // Passadas intermediárias juntam grupos de descargas em arquivos parciais
+            int partialCount = 0;
+            while (inputs.size() + 1 > MAX_FAN_IN) {
+                List<Path> group = new ArrayList<>(inputs.subList(0, MAX_FAN_IN));
+                Path partial = spillDirectory.resolve(PARTIAL_PREFIX + partialCount++ + ".bin");
+                mergeFiles(group, partial, 0);
+                inputs.removeAll(group);
+                inputs.add(partial);
+                for (Path path : group) {
+                    if (path.getFileName().toString().startsWith(PARTIAL_PREFIX)) {
+                        Files.delete(path);
+                    }
+                }
+            }
+            Path store = directory.resolve(OpeningExplorer.FILE_NAME);
+            if (Files.exists(store)) {
+                inputs.add(store);
+            }
+            mergeFiles(inputs, store, lastSpill);
+            done.addAll(originals);
+            for (Path partial : partials(spillDirectory)) {
+                Files.delete(partial);
+            }
+        }
+        for (Path spill : done) {
+            Files.delete(spill);
+        }
+    }
+    
+    private static List<Path> partials(Path spillDirectory) throws IOException {
+        List<Path> partials = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spillDirectory, PARTIAL_PREFIX + "*")) {
+            for (Path path : stream) {
+                partials.add(path);
+            }
+        }
+        return partials;
+    }
+    
+    // Intercalação k-way de descargas e arquivos do explorador, todos ordenados por (hash, lance)
+    private static void mergeFiles(List<Path> inputs, Path output, int lastSpill) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        PriorityQueue<Source> queue = new PriorityQueue<>(OpeningExplorerBuilder::compare);
+        try {
+            for (Path path : inputs) {
+                Source source = path.getFileName().toString().endsWith(".idx")
+                    ? new SpillSource(new IndexSegment(path)) : new StoreSource(new OpeningExplorer(path));
+                sources.add(source);
+                if (source.next()) {
+                    queue.add(source);
+                }
+            }
+            try (OpeningExplorer.Writer writer = new OpeningExplorer.Writer(output, lastSpill)) {
+                while (!queue.isEmpty()) {
+                    Source first = queue.poll();
+                    long hash = first.hash;
+                    int move = first.move;
+                    int games = 0;
+                    int whiteWins = 0;
+                    int draws = 0;
+                    int ratedGames = 0;
+                    long ratingSum = 0;
+                    Source source = first;
+                    while (source != null) {
+                        games += source.games;
+                        whiteWins += source.whiteWins;
+                        draws += source.draws;
+                        ratedGames += source.ratedGames;
+                        ratingSum += source.ratingSum;
+                        if (source.next()) {
+                            queue.add(source);
+                        }
+                        Source peek = queue.peek();
+                        source = peek != null && peek.hash == hash && peek.move == move ? queue.poll() : null;
+                    }
+                    writer.write(hash, move, games, whiteWins, draws, ratedGames, ratingSum);
+                }
+                writer.commit();
+            }
+        } finally {
+            for (Source source : sources) {
+                source.close();
+            }
+        }
+    }
+    
+    private static int compare(Source a, Source b) {
+        int c = Long.compare(a.hash, b.hash);
+        return c != 0 ? c : Integer.compare(a.move, b.move);
+    }
+    
+    // Leitura sequencial de um arquivo ordenado; os campos valem para a entrada atual
+    private abstract static class Source implements Closeable {
+        
+        long hash;
+        int move;
+        int games;
+        int whiteWins;
+        int draws;
+        int ratedGames;
+        long ratingSum;
+        
+        abstract boolean next();
+    }
+    
+    // Descarga: cada tupla conta como uma partida
+    private static class SpillSource extends Source {
+        
+        private IndexSegment segment;
+        private int index = -1;
+        
+        SpillSource(IndexSegment segment) {
+            this.segment = segment;
+            games = 1;
+        }
+        
+        @Override
+        boolean next() {
+            if (++index >= segment.getCount()) {
+                return false;
+            }
+            hash = segment.hash(index);
+            long value = segment.value(index);
+            move = (int) (value >>> 16);
+            int result = (int) (value >>> RESULT_SHIFT) & 3;
+            int rating = (int) value & MAX_RATING;
+            whiteWins = result == WHITE_WINS ? 1 : 0;
+            draws = result == DRAW ? 1 : 0;
+            ratedGames = rating > 0 ? 1 : 0;
+            ratingSum = rating;
+            return true;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            segment.close();
+        }
+    }
+    
+    private static class StoreSource extends Source {
+        
+        private OpeningExplorer explorer;
+        private long index = -1;
+        
+        StoreSource(OpeningExplorer explorer) {
+            this.explorer = explorer;
+        }
+        
+        @Override
+        boolean next() {
+            if (++index >= explorer.size()) {
+                return false;
+            }
+            MoveStats stats = explorer.entry(index);
+            hash = explorer.hash(index);
+            move = stats.getMove();
+            games = stats.getGames();
+            whiteWins = stats.getWhiteWins();
+            draws = stats.getDraws();
+            ratedGames = stats.getRatedGames();
+            ratingSum = stats.getRatingSum();
+            return true;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            explorer.close();
+        }
+    }
+}
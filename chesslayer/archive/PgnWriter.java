@@ -0,0 +1,128 @@
+package chesslayer.archive;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import chesslayer.ChessMatch;
+import chesslayer.Color;
+
+// Exporta partidas em PGN: as sete tags obrigatórias primeiro, depois as demais, e o texto dos
+// lances em SAN quebrado em linhas de até 80 colunas. Anotações (NAGs e comentários) por ply são opcionais.
+public class PgnWriter implements Closeable {
+    
+    private static final String[] SEVEN_TAG_ROSTER = { "Event", "Site", "Date", "Round", "White", "Black", "Result" };
+    private static final int LINE_WIDTH = 80;
+    
+    private final Writer out;
+    
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+    
+    public PgnWriter(Path path) throws IOException {
+        this(new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8)));
+    }
+    
+    public void write(Map<String, String> tags, ChessMatch match) throws IOException {
+        write(tags, match, null);
+    }
+    
+    // annotations[ply]: texto colocado após o lance (ex: "$4 {-3.10, melhor: Nf3}") ou null
+    public void write(Map<String, String> tags, ChessMatch match, String[] annotations) throws IOException {
+        out.write(format(tags, match, annotations));
+    }
+    
+    public static String format(Map<String, String> tags, ChessMatch match, String[] annotations) {
+        String result = tags.get("Result");
+        if (result == null) {
+            result = result(match);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = name.equals("Result") ? result : tags.getOrDefault(name, "?");
+            appendTag(sb, name, value);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!isSevenTagRoster(tag.getKey())) {
+                appendTag(sb, tag.getKey(), tag.getValue());
+            }
+        }
+        if (!match.getVariant().isStandard() && !tags.containsKey("Variant")) {
+            appendTag(sb, "Variant", match.getVariant().getName());
+        }
+        sb.append('\n');
+        
+        List<String> moves = match.getMoveHistory();
+        int lineStart = sb.length();
+        boolean needsNumber = true;
+        for (int ply = 0; ply < moves.size(); ply++) {
+            if (ply % 2 == 0) {
+                lineStart = appendToken(sb, lineStart, (ply / 2 + 1) + ".");
+            } else if (needsNumber) {
+                lineStart = appendToken(sb, lineStart, (ply / 2 + 1) + "...");
+            }
+            lineStart = appendToken(sb, lineStart, moves.get(ply));
+            String annotation = annotations != null && ply < annotations.length ? annotations[ply] : null;
+            needsNumber = annotation != null;
+            if (annotation != null) {
+                for (String token : annotation.split(" ")) {
+                    lineStart = appendToken(sb, lineStart, token);
+                }
+            }
+        }
+        appendToken(sb, lineStart, result);
+        sb.append("\n\n");
+        return sb.toString();
+    }
+    
+    // Resultado pela posição final: só o xeque-mate é reconhecido, o resto fica em aberto
+    private static String result(ChessMatch match) {
+        if (match.getCheckMate()) {
+            return match.getCurrentPlayer() == Color.WHITE ? "1-0" : "0-1";
+        }
+        return "*";
+    }
+    
+    private static int appendToken(StringBuilder sb, int lineStart, String token) {
+        if (sb.length() > lineStart) {
+            if (sb.length() - lineStart + 1 + token.length() > LINE_WIDTH) {
+                sb.append('\n');
+                lineStart = sb.length();
+            } else {
+                sb.append(' ');
+            }
+        }
+        sb.append(token);
+        return lineStart;
+    }
+    
+    private static void appendTag(StringBuilder sb, String name, String value) {
+        sb.append('[').append(name).append(" \"");
+        sb.append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+    }
+    
+    private static boolean isSevenTagRoster(String name) {
+        for (String tag : SEVEN_TAG_ROSTER) {
+            if (tag.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,26 @@
+package chesslayer.archive;
+
+// Ocorrência de uma posição: partida e lance (ply) em que foi alcançada
+public class PositionHit {
+    
+    private int game;
+    private int ply;
+    
+    public PositionHit(int game, int ply) {
+        this.game = game;
+        this.ply = ply;
+    }
+    
+    public int getGame() {
+        return game;
+    }
+    
+    public int getPly() {
+        return ply;
+    }
+    
+    @Override
+    public String toString() {
+        return game + ":" + ply;
+    }
+}
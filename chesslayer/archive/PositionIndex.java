@@ -0,0 +1,56 @@
+package chesslayer.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import chesslayer.ChessMatch;
+
+// Consulta "quais partidas alcançaram esta posição": busca binária em cada segmento mapeado em memória
+public class PositionIndex implements Closeable {
+    
+    private List<IndexSegment> segments = new ArrayList<>();
+    
+    public PositionIndex(Path directory) throws IOException {
+        try {
+            for (Path path : IndexSegment.list(directory)) {
+                segments.add(new IndexSegment(path));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+    
+    public long size() {
+        long size = 0;
+        for (IndexSegment segment : segments) {
+            size += segment.getCount();
+        }
+        return size;
+    }
+    
+    public List<PositionHit> find(ChessMatch match) {
+        return find(match.getPositionHash());
+    }
+    
+    public List<PositionHit> find(long hash) {
+        List<PositionHit> hits = new ArrayList<>();
+        for (IndexSegment segment : segments) {
+            for (int i = segment.lowerBound(hash); i < segment.getCount() && segment.hash(i) == hash; i++) {
+                long value = segment.value(i);
+                hits.add(new PositionHit((int) (value >>> 16), (int) (value & 0xFFFF)));
+            }
+        }
+        return hits;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        for (IndexSegment segment : segments) {
+            segment.close();
+        }
+    }
+}
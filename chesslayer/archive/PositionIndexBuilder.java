@@ -0,0 +1,188 @@
+package chesslayer.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import chesslayer.ChessMatch;
+import chesslayer.MoveResult;
+
+// Reproduz partidas e acumula (hash da posição, partida, ply) em memória; cada flush grava
+// um novo segmento ordenado, de modo que novas partidas são indexadas sem reescrever os antigos
+public class PositionIndexBuilder implements Closeable {
+    
+    private static final int DEFAULT_BUFFER_ENTRIES = 1 << 22;
+    
+    private Path directory;
+    private long[] hashes;
+    private long[] values;
+    private int size;
+    
+    public PositionIndexBuilder(Path directory) throws IOException {
+        this(directory, DEFAULT_BUFFER_ENTRIES);
+    }
+    
+    public PositionIndexBuilder(Path directory, int bufferEntries) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        hashes = new long[bufferEntries];
+        values = new long[bufferEntries];
+    }
+    
+    // Indexa todas as partidas do arquivo; firstGameId desloca a numeração quando há vários arquivos
+    public void addArchive(GameArchiveReader archive, int firstGameId) throws IOException {
+        for (int i = 0; i < archive.getGameCount(); i++) {
+            addGame(firstGameId + i, archive.game(i).getMoves());
+        }
+    }
+    
+    // A posição inicial (ply 0) é comum a todas as partidas e não é indexada
+    public void addGame(int gameId, int[] moves) throws IOException {
+        if (moves.length > 0xFFFF) {
+            throw new IllegalArgumentException("Máximo de 65535 lances por partida");
+        }
+        ChessMatch replay = new ChessMatch();
+        for (int ply = 1; ply <= moves.length; ply++) {
+            if (replay.applyMove(moves[ply - 1]) != MoveResult.OK) {
+                throw new IllegalArgumentException("Partida " + gameId + " contém lance inválido no ply " + ply);
+            }
+            if (size == hashes.length) {
+                flush();
+            }
+            hashes[size] = replay.getPositionHash();
+            values[size] = ((long) gameId << 16) | ply;
+            size++;
+        }
+    }
+    
+    public void flush() throws IOException {
+        if (size == 0) {
+            return;
+        }
+        sort(hashes, values, 0, size - 1);
+        try (IndexSegment.Writer writer = new IndexSegment.Writer(IndexSegment.next(directory))) {
+            for (int i = 0; i < size; i++) {
+                writer.write(hashes[i], values[i]);
+            }
+        }
+        size = 0;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+    
+    // Junta todos os segmentos do diretório por intercalação k-way, lendo-os sequencialmente
+    public static void compact(Path directory) throws IOException {
+        List<Path> paths = IndexSegment.list(directory);
+        if (paths.size() < 2) {
+            return;
+        }
+        List<IndexSegment> segments = new ArrayList<>();
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> compare(segments, a, b));
+        List<Path> output = new ArrayList<>();
+        try {
+            for (Path path : paths) {
+                IndexSegment segment = new IndexSegment(path);
+                segments.add(segment);
+                if (segment.getCount() > 0) {
+                    queue.add(new int[] { segments.size() - 1, 0 });
+                }
+            }
+            IndexSegment.Writer writer = null;
+            try {
+                while (!queue.isEmpty()) {
+                    int[] cursor = queue.poll();
+                    IndexSegment segment = segments.get(cursor[0]);
+                    if (writer == null || writer.getCount() == IndexSegment.MAX_ENTRIES) {
+                        if (writer != null) {
+                            writer.close();
+                        }
+                        Path next = directory.resolve("merged-" + output.size() + ".part");
+                        output.add(next);
+                        writer = new IndexSegment.Writer(next);
+                    }
+                    writer.write(segment.hash(cursor[1]), segment.value(cursor[1]));
+                    if (++cursor[1] < segment.getCount()) {
+                        queue.add(cursor);
+                    }
+                }
+            } finally {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        } finally {
+            for (IndexSegment segment : segments) {
+                segment.close();
+            }
+        }
+        // Publica os novos segmentos antes de apagar os antigos: uma falha no meio duplica entradas, mas não as perde
+        for (Path part : output) {
+            Files.move(part, IndexSegment.next(directory));
+        }
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+    
+    private static int compare(List<IndexSegment> segments, int[] a, int[] b) {
+        IndexSegment sa = segments.get(a[0]);
+        IndexSegment sb = segments.get(b[0]);
+        int c = Long.compare(sa.hash(a[1]), sb.hash(b[1]));
+        return c != 0 ? c : Long.compare(sa.value(a[1]), sb.value(b[1]));
+    }
+    
+    // Quicksort sobre os dois vetores paralelos, ordenando por hash e depois por valor
+    static void sort(long[] hashes, long[] values, int low, int high) {
+        while (high - low > 16) {
+            int mid = (low + high) >>> 1;
+            long pivotHash = hashes[mid];
+            long pivotValue = values[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (less(hashes[i], values[i], pivotHash, pivotValue)) {
+                    i++;
+                }
+                while (less(pivotHash, pivotValue, hashes[j], values[j])) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(hashes, values, i++, j--);
+                }
+            }
+            // Recursão na parte menor para limitar a profundidade da pilha
+            if (j - low < high - i) {
+                sort(hashes, values, low, j);
+                low = i;
+            } else {
+                sort(hashes, values, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && less(hashes[j], values[j], hashes[j - 1], values[j - 1]); j--) {
+                swap(hashes, values, j, j - 1);
+            }
+        }
+    }
+    
+    private static boolean less(long hashA, long valueA, long hashB, long valueB) {
+        return hashA < hashB || (hashA == hashB && valueA < valueB);
+    }
+    
+    private static void swap(long[] hashes, long[] values, int i, int j) {
+        long h = hashes[i];
+        hashes[i] = hashes[j];
+        hashes[j] = h;
+        long v = values[i];
+        values[i] = values[j];
+        values[j] = v;
+    }
+}
@@ -0,0 +1,117 @@
+package chesslayer.engine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+
+import chesslayer.ChessMatch;
+
+// Análise infinita multi-PV da posição de uma partida. Aprofunda a busca até ser cancelada e,
+// ao fim de cada profundidade, envia as N melhores linhas aos ouvintes (na thread da análise) e
+// aos assinantes do Flow.Publisher (assíncrono; assinantes lentos perdem atualizações em vez de
+// atrasar a busca). A Search pode ser reaproveitada entre análises para manter a tabela de transposição.
+public class Analysis implements Flow.Publisher<AnalysisLine>, AutoCloseable {
+    
+    private final Search search;
+    private final int multiPv;
+    private final int maxDepth;
+    private final List<Consumer<AnalysisLine>> listeners = new CopyOnWriteArrayList<>();
+    private final SubmissionPublisher<AnalysisLine> publisher = new SubmissionPublisher<>();
+    private volatile List<AnalysisLine> lines = Collections.emptyList();
+    private Thread thread;
+    
+    public Analysis(ChessMatch match, int multiPv) {
+        this(match, multiPv, Search.MAX_PLY, new Search());
+    }
+    
+    // A posição é copiada aqui, na thread dona da partida; depois disso a partida pode continuar
+    public Analysis(ChessMatch match, int multiPv, int maxDepth, Search search) {
+        if (multiPv < 1) {
+            throw new IllegalArgumentException("multiPv deve ser ao menos 1");
+        }
+        this.search = search;
+        this.multiPv = multiPv;
+        this.maxDepth = Math.min(maxDepth, Search.MAX_PLY);
+        search.setPosition(match);
+    }
+    
+    public void addListener(Consumer<AnalysisLine> listener) {
+        listeners.add(listener);
+    }
+    
+    @Override
+    public void subscribe(Flow.Subscriber<? super AnalysisLine> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+    
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Análise já iniciada");
+        }
+        thread = new Thread(this::run, "analysis");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    public void cancel() {
+        search.stop();
+    }
+    
+    public void join() throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t != null) {
+            t.join();
+        }
+    }
+    
+    public boolean isRunning() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        return t != null && t.isAlive();
+    }
+    
+    // Linhas da última profundidade completa
+    public List<AnalysisLine> getLines() {
+        return lines;
+    }
+    
+    @Override
+    public void close() {
+        cancel();
+        try {
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publisher.close();
+    }
+    
+    private void run() {
+        try {
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                AnalysisLine[] result = search.searchRoot(depth, multiPv);
+                if (result == null || result.length == 0) {
+                    break;
+                }
+                lines = Collections.unmodifiableList(Arrays.asList(result));
+                for (AnalysisLine line : result) {
+                    for (Consumer<AnalysisLine> listener : listeners) {
+                        listener.accept(line);
+                    }
+                    publisher.offer(line, (subscriber, dropped) -> false);
+                }
+            }
+        } finally {
+            publisher.close();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package chesslayer.engine;
+
+import chesslayer.ChessMove;
+
+// Uma linha de análise: posição no multi-PV, profundidade, avaliação (centipeões do ponto de vista
+// do jogador da vez) e a variante principal em lances ChessMove.
+public final class AnalysisLine {
+    
+    private final int multiPv;
+    private final int depth;
+    private final int score;
+    private final int[] pv;
+    private final long nodes;
+    private final long timeMillis;
+    
+    public AnalysisLine(int multiPv, int depth, int score, int[] pv, long nodes, long timeMillis) {
+        this.multiPv = multiPv;
+        this.depth = depth;
+        this.score = score;
+        this.pv = pv.clone();
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+    
+    public int getMultiPv() {
+        return multiPv;
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    public int[] getPv() {
+        return pv.clone();
+    }
+    
+    public int getMove() {
+        return pv[0];
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+    
+    public boolean isMate() {
+        return Math.abs(score) > Search.MATE - Search.MAX_PLY;
+    }
+    
+    // Lances (não plies) até o mate: positivo se o jogador da vez dá o mate
+    public int getMateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        return score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2;
+    }
+    
+    // Formato semelhante ao "info" do protocolo UCI
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("multipv ").append(multiPv).append(" depth ").append(depth);
+        sb.append(isMate() ? " score mate " + getMateIn() : " score cp " + score);
+        sb.append(" nodes ").append(nodes).append(" time ").append(timeMillis).append(" pv");
+        for (int move : pv) {
+            sb.append(' ').append(ChessMove.toUci(move));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package chesslayer.engine;
+
+// Avaliação em lote de posições independentes (PackedPosition), do ponto de vista das brancas,
+// com as mesmas tabelas de um Evaluator, reorganizadas por casa (16 valores por casa, um por código).
+// Cada bloco de posições é transposto para estrutura de arrays (um array por int da posição, uma
+// posição por elemento) e somado em faixas SIMD pelo
+// VectorBatchKernel quando o módulo jdk.incubator.vector está disponível
+// (java --add-modules jdk.incubator.vector); sem ele, o cálculo é escalar e dá os mesmos valores.
+// Uma instância não deve ser usada por várias threads ao mesmo tempo (os blocos são reaproveitados).
+public class BatchEvaluator {
+
+    static final int BLOCK = 1024;
+    // Entradas por casa em lookup: os 13 códigos, completados com zeros
+    static final int CODES = 16;
+
+    // Núcleo da soma de um bloco transposto: scores[i] = soma de lookup[casa * 16 + código]
+    interface Kernel {
+
+        void evaluate(int[] lookup, int[] block, int count, int[] scores, int scoreOffset);
+    }
+
+    private static final Kernel VECTOR_KERNEL = loadVectorKernel();
+
+    private final int[] lookup = new int[Evaluator.SQUARES * CODES];
+    private final Kernel kernel;
+    private final int[] block;
+
+    public BatchEvaluator(Evaluator evaluator) {
+        this(evaluator, true);
+    }
+
+    // useVector = false força o caminho escalar (comparação e máquinas sem SIMD)
+    public BatchEvaluator(Evaluator evaluator, boolean useVector) {
+        int[] table = evaluator.table();
+        for (int square = 0; square < Evaluator.SQUARES; square++) {
+            for (int code = 0; code <= 12; code++) {
+                lookup[square * CODES + code] = table[code * Evaluator.SQUARES + square];
+            }
+        }
+        this.kernel = useVector ? VECTOR_KERNEL : null;
+        this.block = kernel == null ? null : new int[PackedPosition.INTS * BLOCK];
+    }
+
+    // A classe vetorial só é carregada se o módulo incubado estiver no boot layer; assim o resto
+    // do programa roda sem ele
+    private static Kernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName("chesslayer.engine.VectorBatchKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public boolean isVectorized() {
+        return kernel != null;
+    }
+
+    // Avalia count posições de packed (a partir da primeira) e grava em scores[0 .. count - 1]
+    public void evaluateWhite(int[] packed, int count, int[] scores) {
+        if (packed.length < count * PackedPosition.INTS || scores.length < count) {
+            throw new IllegalArgumentException("Arrays menores que o lote de " + count + " posições");
+        }
+        if (kernel == null) {
+            evaluateScalar(packed, 0, count, scores);
+            return;
+        }
+        for (int first = 0; first < count; first += BLOCK) {
+            int size = Math.min(BLOCK, count - first);
+            transpose(packed, first, size);
+            kernel.evaluate(lookup, block, size, scores, first);
+        }
+    }
+
+    public int[] evaluateWhite(int[] packed) {
+        int[] scores = new int[packed.length / PackedPosition.INTS];
+        evaluateWhite(packed, scores.length, scores);
+        return scores;
+    }
+
+    // block[k * BLOCK + i] = int k da posição first + i
+    private void transpose(int[] packed, int first, int size) {
+        for (int i = 0; i < size; i++) {
+            int offset = (first + i) * PackedPosition.INTS;
+            for (int k = 0; k < PackedPosition.INTS; k++) {
+                block[k * BLOCK + i] = packed[offset + k];
+            }
+        }
+    }
+
+    private void evaluateScalar(int[] packed, int first, int count, int[] scores) {
+        for (int i = first; i < first + count; i++) {
+            int offset = i * PackedPosition.INTS;
+            int score = 0;
+            for (int k = 0; k < PackedPosition.INTS; k++) {
+                int word = packed[offset + k];
+                for (int j = 0; j < 8; j++) {
+                    score += lookup[(k * 8 + j) * CODES + ((word >>> (j * 4)) & 15)];
+                }
+            }
+            scores[i] = score;
+        }
+    }
+}
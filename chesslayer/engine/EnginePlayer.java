@@ -0,0 +1,177 @@
+package chesslayer.engine;
+
+import chesslayer.ChessMatch;
+
+// Motor que joga contra um humano, com ponder: depois de cada lance do motor, uma thread busca a
+// posição após a resposta esperada (segundo lance da variante principal) enquanto o humano pensa.
+// Se o humano jogar esse lance (ponder hit), o tempo já pensado conta como tempo do lance: a busca
+// continua de onde estava até completar a cota, ou responde na hora se ela já foi gasta. Senão
+// (ponder miss) a busca é cancelada e a busca normal reaproveita a tabela de transposição.
+// Todos os métodos devem ser chamados na thread dona da partida.
+public class EnginePlayer implements AutoCloseable {
+
+    private final Search search;
+    private final int maxDepth;
+    private final long moveMillis;
+    private boolean ponderEnabled = true;
+
+    private Thread ponderThread;
+    private int ponderMove = -1;
+    private int ponderPly;
+    // Escritos pela thread do ponder
+    private volatile AnalysisLine ponderBest;
+    private volatile boolean hit;
+    private long ponderStartNanos;
+
+    private AnalysisLine lastLine;
+    private boolean lastPonderHit;
+    private long lastLatencyMillis;
+    private long ponderHits;
+    private long ponderMisses;
+
+    public EnginePlayer(Search search, int maxDepth, long moveMillis) {
+        this.search = search;
+        this.maxDepth = Math.min(maxDepth, Search.MAX_PLY);
+        this.moveMillis = moveMillis;
+    }
+
+    public void setPonderEnabled(boolean ponderEnabled) {
+        this.ponderEnabled = ponderEnabled;
+    }
+
+    // Lance do motor na posição atual (o motor é o jogador da vez), ou -1 se não há lances legais
+    public int play(ChessMatch match) {
+        long start = System.nanoTime();
+        AnalysisLine line = null;
+        lastPonderHit = false;
+        if (ponderThread != null) {
+            int[] moves = match.getMoves();
+            if (moves.length == ponderPly + 1 && moves[ponderPly] == ponderMove) {
+                line = finishPonder();
+                lastPonderHit = line != null;
+                // Sem resultado do ponder a busca recomeça do zero: conta como erro
+                if (lastPonderHit) {
+                    ponderHits++;
+                } else {
+                    ponderMisses++;
+                }
+            } else {
+                stopPondering();
+                ponderMisses++;
+            }
+        }
+        if (line == null) {
+            line = search.think(match, maxDepth, moveMillis);
+        }
+        lastLine = line;
+        lastLatencyMillis = (System.nanoTime() - start) / 1_000_000L;
+        return line == null ? -1 : line.getMove();
+    }
+
+    // Depois do lance do motor já aplicado na partida: começa a pensar no tempo do humano
+    public void startPondering(ChessMatch match) {
+        stopPondering();
+        if (!ponderEnabled || match.getCheckMate() || match.legalMoves().length == 0) {
+            return;
+        }
+        int expected = expectedReply(match);
+        if (expected < 0) {
+            return;
+        }
+        // A cópia da posição é feita aqui, na thread dona da partida
+        search.setPosition(match);
+        search.advance(expected);
+        ponderMove = expected;
+        ponderPly = match.getMoves().length;
+        ponderBest = null;
+        hit = false;
+        ponderStartNanos = System.nanoTime();
+        ponderThread = new Thread(this::ponder, "ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    // Resposta esperada do humano: a da variante principal do último lance, ou a de uma busca rasa
+    private int expectedReply(ChessMatch match) {
+        int[] moves = match.getMoves();
+        if (lastLine != null && lastLine.getPv().length > 1 && moves.length > 0
+            && moves[moves.length - 1] == lastLine.getMove()) {
+            return lastLine.getPv()[1];
+        }
+        AnalysisLine reply = search.think(match, 1, moveMillis);
+        return reply == null ? -1 : reply.getMove();
+    }
+
+    // Aprofunda sem prazo até o ponder hit; a partir dele, segue as mesmas regras de think(),
+    // contando o tempo desde o início do ponder
+    private void ponder() {
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            AnalysisLine[] lines = search.searchRoot(depth, 1);
+            if (lines == null || lines.length == 0) {
+                return;
+            }
+            ponderBest = lines[0];
+            if (lines[0].isMate() || (hit && System.nanoTime() - ponderStartNanos > moveMillis * 500_000L)) {
+                return;
+            }
+        }
+    }
+
+    // Ponder hit: a busca em andamento recebe só o que falta da cota do lance
+    private AnalysisLine finishPonder() {
+        long remaining = moveMillis - (System.nanoTime() - ponderStartNanos) / 1_000_000L;
+        hit = true;
+        if (remaining <= 0 && ponderBest != null) {
+            search.stop();
+        } else {
+            search.setTimeLimit(Math.max(remaining, 0));
+        }
+        joinPonder();
+        return ponderBest;
+    }
+
+    public void stopPondering() {
+        if (ponderThread != null) {
+            search.stop();
+            joinPonder();
+        }
+    }
+
+    private void joinPonder() {
+        try {
+            ponderThread.join();
+        } catch (InterruptedException e) {
+            search.stop();
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+        ponderMove = -1;
+    }
+
+    // Linha escolhida no último play()
+    public AnalysisLine getLastLine() {
+        return lastLine;
+    }
+
+    public boolean wasPonderHit() {
+        return lastPonderHit;
+    }
+
+    // Tempo entre o lance do humano e a resposta do motor no último play()
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis;
+    }
+
+    public long getPonderHits() {
+        return ponderHits;
+    }
+
+    public long getPonderMisses() {
+        return ponderMisses;
+    }
+
+    @Override
+    public void close() {
+        stopPondering();
+    }
+}
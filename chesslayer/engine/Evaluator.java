@@ -0,0 +1,207 @@
+package chesslayer.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import chesslayer.Color;
+import chesslayer.PositionSnapshot;
+
+// Avaliação estática: material mais tabelas peça-casa, em centipeões, do ponto de vista do
+// jogador da vez. Os pesos ficam num único vetor (PST de cada peça e depois o material) para
+// poderem ser ajustados e carregados de arquivo; na construção viram uma tabela por código de peça.
+// O construtor sem argumentos usa o recurso weights.txt ao lado da classe, se existir (gerado
+// pelo TexelTuner), e os pesos de fábrica caso contrário.
+public class Evaluator {
+    
+    static final String RESOURCE = "weights.txt";
+    private static final String PIECE_NAMES = "PNBRQK";
+    
+    public static final int PIECE_TYPES = 6;
+    public static final int SQUARES = 64;
+    public static final int MATERIAL = PIECE_TYPES * SQUARES;
+    public static final int WEIGHT_COUNT = MATERIAL + PIECE_TYPES;
+    
+    // Tabelas vistas pelas brancas, da 8ª fileira (casa 0 = a8) para a 1ª; ordem P N B R Q K
+    private static final int[][] DEFAULT_PST = {
+        {  0,  0,  0,  0,  0,  0,  0,  0,
+          50, 50, 50, 50, 50, 50, 50, 50,
+          10, 10, 20, 30, 30, 20, 10, 10,
+           5,  5, 10, 25, 25, 10,  5,  5,
+           0,  0,  0, 20, 20,  0,  0,  0,
+           5, -5,-10,  0,  0,-10, -5,  5,
+           5, 10, 10,-20,-20, 10, 10,  5,
+           0,  0,  0,  0,  0,  0,  0,  0 },
+        {-50,-40,-30,-30,-30,-30,-40,-50,
+         -40,-20,  0,  0,  0,  0,-20,-40,
+         -30,  0, 10, 15, 15, 10,  0,-30,
+         -30,  5, 15, 20, 20, 15,  5,-30,
+         -30,  0, 15, 20, 20, 15,  0,-30,
+         -30,  5, 10, 15, 15, 10,  5,-30,
+         -40,-20,  0,  5,  5,  0,-20,-40,
+         -50,-40,-30,-30,-30,-30,-40,-50 },
+        {-20,-10,-10,-10,-10,-10,-10,-20,
+         -10,  0,  0,  0,  0,  0,  0,-10,
+         -10,  0,  5, 10, 10,  5,  0,-10,
+         -10,  5,  5, 10, 10,  5,  5,-10,
+         -10,  0, 10, 10, 10, 10,  0,-10,
+         -10, 10, 10, 10, 10, 10, 10,-10,
+         -10,  5,  0,  0,  0,  0,  5,-10,
+         -20,-10,-10,-10,-10,-10,-10,-20 },
+        {  0,  0,  0,  0,  0,  0,  0,  0,
+           5, 10, 10, 10, 10, 10, 10,  5,
+          -5,  0,  0,  0,  0,  0,  0, -5,
+          -5,  0,  0,  0,  0,  0,  0, -5,
+          -5,  0,  0,  0,  0,  0,  0, -5,
+          -5,  0,  0,  0,  0,  0,  0, -5,
+          -5,  0,  0,  0,  0,  0,  0, -5,
+           0,  0,  0,  5,  5,  0,  0,  0 },
+        {-20,-10,-10, -5, -5,-10,-10,-20,
+         -10,  0,  0,  0,  0,  0,  0,-10,
+         -10,  0,  5,  5,  5,  5,  0,-10,
+          -5,  0,  5,  5,  5,  5,  0, -5,
+           0,  0,  5,  5,  5,  5,  0, -5,
+         -10,  5,  5,  5,  5,  5,  0,-10,
+         -10,  0,  5,  0,  0,  0,  0,-10,
+         -20,-10,-10, -5, -5,-10,-10,-20 },
+        {-30,-40,-40,-50,-50,-40,-40,-30,
+         -30,-40,-40,-50,-50,-40,-40,-30,
+         -30,-40,-40,-50,-50,-40,-40,-30,
+         -30,-40,-40,-50,-50,-40,-40,-30,
+         -20,-30,-30,-40,-40,-30,-30,-20,
+         -10,-20,-20,-20,-20,-20,-20,-10,
+          20, 20,  0,  0,  0,  0, 20, 20,
+          20, 30, 10,  0,  0, 10, 30, 20 }
+    };
+    private static final int[] DEFAULT_MATERIAL = { 100, 320, 330, 500, 900, 0 };
+    
+    private static final int[] STARTUP_WEIGHTS = startupWeights();
+    
+    private final int[] weights;
+    // table[código * 64 + casa]: valor já com sinal (positivo = brancas)
+    private final int[] table = new int[13 * SQUARES];
+    
+    public Evaluator() {
+        this(STARTUP_WEIGHTS);
+    }
+    
+    public Evaluator(int[] weights) {
+        if (weights.length != WEIGHT_COUNT) {
+            throw new IllegalArgumentException("Esperados " + WEIGHT_COUNT + " pesos, recebidos " + weights.length);
+        }
+        this.weights = weights.clone();
+        for (int type = 0; type < PIECE_TYPES; type++) {
+            for (int square = 0; square < SQUARES; square++) {
+                table[(type + 1) * SQUARES + square] = weights[MATERIAL + type] + weights[type * SQUARES + square];
+                // Pretas: mesma tabela espelhada verticalmente (a8 <-> a1)
+                table[(type + 7) * SQUARES + square] = -(weights[MATERIAL + type] + weights[type * SQUARES + (square ^ 56)]);
+            }
+        }
+    }
+    
+    public static int[] defaultWeights() {
+        int[] weights = new int[WEIGHT_COUNT];
+        for (int type = 0; type < PIECE_TYPES; type++) {
+            System.arraycopy(DEFAULT_PST[type], 0, weights, type * SQUARES, SQUARES);
+            weights[MATERIAL + type] = DEFAULT_MATERIAL[type];
+        }
+        return weights;
+    }
+    
+    // Um recurso inválido não impede o programa de rodar: avisa e usa os pesos de fábrica
+    private static int[] startupWeights() {
+        try (InputStream in = Evaluator.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                return parseWeights(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Pesos de " + RESOURCE + " ignorados: " + e.getMessage());
+        }
+        return defaultWeights();
+    }
+    
+    // Arquivo de pesos: inteiros separados por espaço na ordem do vetor; # inicia comentário
+    public static int[] loadWeights(Path path) throws IOException {
+        return parseWeights(Files.readString(path, StandardCharsets.UTF_8));
+    }
+    
+    private static int[] parseWeights(String text) {
+        int[] weights = new int[WEIGHT_COUNT];
+        int count = 0;
+        for (String line : text.split("\\R")) {
+            int comment = line.indexOf('#');
+            String values = (comment < 0 ? line : line.substring(0, comment)).trim();
+            if (values.isEmpty()) {
+                continue;
+            }
+            for (String value : values.split("\\s+")) {
+                if (count == WEIGHT_COUNT) {
+                    throw new IllegalArgumentException("Mais de " + WEIGHT_COUNT + " pesos");
+                }
+                weights[count++] = Integer.parseInt(value);
+            }
+        }
+        if (count != WEIGHT_COUNT) {
+            throw new IllegalArgumentException("Esperados " + WEIGHT_COUNT + " pesos, encontrados " + count);
+        }
+        return weights;
+    }
+    
+    // Grava no formato de loadWeights: uma tabela por peça, oito casas por linha, e o material
+    public static void saveWeights(int[] weights, Path path) throws IOException {
+        if (weights.length != WEIGHT_COUNT) {
+            throw new IllegalArgumentException("Esperados " + WEIGHT_COUNT + " pesos, recebidos " + weights.length);
+        }
+        StringBuilder text = new StringBuilder();
+        text.append("# Pesos da avaliação: tabelas peça-casa vistas pelas brancas (a8..h8 até a1..h1), depois o material\n");
+        for (int type = 0; type < PIECE_TYPES; type++) {
+            text.append("# ").append(PIECE_NAMES.charAt(type)).append('\n');
+            for (int row = 0; row < 8; row++) {
+                for (int column = 0; column < 8; column++) {
+                    text.append(String.format("%5d", weights[type * SQUARES + row * 8 + column]));
+                }
+                text.append('\n');
+            }
+        }
+        text.append("# Material ").append(PIECE_NAMES).append('\n');
+        for (int type = 0; type < PIECE_TYPES; type++) {
+            text.append(String.format("%5d", weights[MATERIAL + type]));
+        }
+        text.append('\n');
+        Files.writeString(path, text, StandardCharsets.UTF_8);
+    }
+    
+    public int[] getWeights() {
+        return weights.clone();
+    }
+    
+    // Tabela interna (código * 64 + casa), sem cópia, para BatchEvaluator; não deve ser alterada
+    int[] table() {
+        return table;
+    }
+    
+    // Avaliação do ponto de vista do jogador da vez
+    public int evaluate(PositionSnapshot position) {
+        int score = evaluateWhite(position);
+        return position.getCurrentPlayer() == Color.WHITE ? score : -score;
+    }
+    
+    // Avaliação do ponto de vista das brancas
+    public int evaluateWhite(PositionSnapshot position) {
+        int score = 0;
+        for (int square = 0; square < SQUARES; square++) {
+            score += table[position.pieceCode(square) * SQUARES + square];
+        }
+        return score;
+    }
+    
+    // Valor material de um código de peça (0 para casa vazia), usado na ordenação de capturas
+    public int pieceValue(int code) {
+        if (code == 0) {
+            return 0;
+        }
+        return weights[MATERIAL + (code - 1) % PIECE_TYPES];
+    }
+}
@@ -0,0 +1,42 @@
+package chesslayer.engine;
+
+import chesslayer.PositionSnapshot;
+
+// Posição do xadrez padrão compactada em 8 ints: 4 bits por casa com o código de PositionSnapshot
+// (0 = vazia, 1..12 = peças), casa = int * 8 + posição do nibble. Usada nos lotes de avaliação,
+// que guardam milhões de posições num único int[] sem criar objetos
+public final class PackedPosition {
+
+    public static final int INTS = 8;
+
+    private PackedPosition() {
+    }
+
+    public static int[] pack(PositionSnapshot position) {
+        int[] packed = new int[INTS];
+        pack(position, packed, 0);
+        return packed;
+    }
+
+    // Grava a posição em packed[offset .. offset + 7]
+    public static void pack(PositionSnapshot position, int[] packed, int offset) {
+        if (position.getRows() != 8 || position.getColumns() != 8) {
+            throw new IllegalArgumentException("Só o tabuleiro 8x8 pode ser compactado");
+        }
+        for (int i = 0; i < INTS; i++) {
+            int word = 0;
+            for (int j = 0; j < 8; j++) {
+                int code = position.pieceCode(i * 8 + j);
+                if (code > 12) {
+                    throw new IllegalArgumentException("Peça de variante não pode ser compactada: " + code);
+                }
+                word |= code << (j * 4);
+            }
+            packed[offset + i] = word;
+        }
+    }
+
+    public static int pieceCode(int[] packed, int offset, int square) {
+        return (packed[offset + (square >>> 3)] >>> ((square & 7) * 4)) & 15;
+    }
+}
@@ -0,0 +1,448 @@
+package chesslayer.engine;
+
+import java.util.Arrays;
+
+import chesslayer.ChessMatch;
+import chesslayer.ChessMove;
+import chesslayer.MoveResult;
+import chesslayer.PositionSnapshot;
+
+// Busca alfa-beta (negamax) com aprofundamento iterativo, quiescência de capturas, tabela de
+// transposição, killers e histórico. Trabalha sobre uma cópia da partida (setPosition) usando
+// applyMove/takeBack, então a partida original nunca é alterada.
+//
+// A tabela de transposição, o histórico e a ordem dos lances da raiz são mantidos entre
+// iterações e entre buscas; clear() os descarta (nova partida). Uma instância não é thread-safe,
+// exceto stop() e setTimeLimit(), que podem ser chamados de qualquer thread.
+public class Search {
+    
+    public static final int INFINITE = 32000;
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 128;
+    
+    private static final int EXACT = 0;
+    private static final int LOWER = 1;
+    private static final int UPPER = 2;
+    
+    private final Evaluator evaluator;
+    private final long[] ttKeys;
+    private final long[] ttData;
+    private final int ttMask;
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[] history = new int[64 * 64];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    
+    private ChessMatch match;
+    // Hash das posições anteriores da partida e do caminho atual, para detectar repetição
+    private long[] hashes = new long[256];
+    private int hashCount;
+    private int[] rootMoves;
+    private int[] rootScores;
+    private long rootHash;
+    
+    private volatile boolean stopped;
+    private volatile boolean timed;
+    private volatile long deadline;
+    private long nodes;
+    private long startNanos;
+    
+    public Search() {
+        this(new Evaluator(), 18);
+    }
+    
+    // Tabela de transposição com 2^ttBits entradas (16 bytes cada)
+    public Search(Evaluator evaluator, int ttBits) {
+        this.evaluator = evaluator;
+        ttKeys = new long[1 << ttBits];
+        ttData = new long[1 << ttBits];
+        ttMask = (1 << ttBits) - 1;
+    }
+    
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+    
+    // Copia a posição (e o histórico, para repetições) da partida; deve ser chamado na thread dona dela
+    public void setPosition(ChessMatch source) {
+        if (!source.getVariant().isStandard()) {
+            throw new IllegalArgumentException("O motor só analisa partidas de xadrez padrão");
+        }
+        match = new ChessMatch();
+        hashCount = 0;
+        for (int move : source.getMoves()) {
+            pushHash(match.getPositionHash());
+            if (match.applyMove(move) != MoveResult.OK) {
+                throw new IllegalStateException("Lance inválido ao copiar a partida: " + ChessMove.toUci(move));
+            }
+        }
+        stopped = false;
+        timed = false;
+        nodes = 0;
+        startNanos = System.nanoTime();
+    }
+    
+    // Avança a posição copiada com um lance, mantendo tabela e histórico (análise lance a lance)
+    public void advance(int move) {
+        pushHash(match.getPositionHash());
+        if (match.applyMove(move) != MoveResult.OK) {
+            throw new IllegalStateException("Lance inválido na posição analisada: " + ChessMove.toUci(move));
+        }
+    }
+    
+    public void stop() {
+        stopped = true;
+    }
+    
+    public boolean isStopped() {
+        return stopped;
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    // Encerra a busca quando o tempo acabar (a partir da chamada); pode limitar uma busca em andamento
+    public void setTimeLimit(long millis) {
+        deadline = System.nanoTime() + millis * 1_000_000L;
+        timed = true;
+    }
+    
+    public void clear() {
+        Arrays.fill(ttKeys, 0);
+        Arrays.fill(ttData, 0);
+        Arrays.fill(history, 0);
+        for (int[] k : killers) {
+            Arrays.fill(k, 0);
+        }
+        rootMoves = null;
+    }
+    
+    // Melhor linha encontrada em até maxDepth plies ou no tempo dado (a 1ª iteração sempre termina);
+    // null se não há lances legais
+    public AnalysisLine think(ChessMatch source, int maxDepth, long millis) {
+        setPosition(source);
+        AnalysisLine best = null;
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            AnalysisLine[] lines = searchRoot(depth, 1);
+            if (lines == null) {
+                break;
+            }
+            if (lines.length == 0) {
+                return null;
+            }
+            best = lines[0];
+            if (depth == 1) {
+                setTimeLimit(millis);
+            }
+            // Meia cota gasta: a próxima iteração dificilmente terminaria
+            if (best.isMate() || System.nanoTime() - startNanos > millis * 500_000L) {
+                break;
+            }
+        }
+        return best;
+    }
+    
+    // Busca completa da raiz na profundidade dada: as multiPv melhores linhas, da melhor para a pior.
+    // Retorna null se a busca foi interrompida e um vetor vazio se não há lances legais.
+    public AnalysisLine[] searchRoot(int depth, int multiPv) {
+        long hash = match.getPositionHash();
+        if (rootMoves == null || rootHash != hash) {
+            rootMoves = match.legalMoves();
+            rootScores = new int[rootMoves.length];
+            rootHash = hash;
+            orderMoves(rootMoves, 0, 0, match.getSnapshot());
+        }
+        int count = rootMoves.length;
+        multiPv = Math.min(multiPv, count);
+        int[] bestScores = new int[multiPv];
+        int[][] bestPvs = new int[multiPv][];
+        int found = 0;
+        
+        pushHash(hash);
+        try {
+            for (int i = 0; i < count; i++) {
+                int move = rootMoves[i];
+                // Só interessa saber se o lance entra entre os multiPv melhores
+                int alpha = found < multiPv ? -INFINITE : bestScores[multiPv - 1];
+                match.applyMove(move);
+                int score = -negamax(depth - 1, -INFINITE, -alpha, 1);
+                match.takeBack();
+                if (stopped) {
+                    return null;
+                }
+                rootScores[i] = score;
+                if (score > alpha || found < multiPv) {
+                    int position = Math.min(found, multiPv - 1);
+                    while (position > 0 && bestScores[position - 1] < score) {
+                        if (position < multiPv) {
+                            bestScores[position] = bestScores[position - 1];
+                            bestPvs[position] = bestPvs[position - 1];
+                        }
+                        position--;
+                    }
+                    bestScores[position] = score;
+                    bestPvs[position] = rootPv(move);
+                    found = Math.min(found + 1, multiPv);
+                }
+            }
+        } finally {
+            hashCount--;
+        }
+        sortRoot();
+        
+        long elapsed = (System.nanoTime() - startNanos) / 1_000_000L;
+        AnalysisLine[] lines = new AnalysisLine[found];
+        for (int i = 0; i < found; i++) {
+            lines[i] = new AnalysisLine(i + 1, depth, bestScores[i], bestPvs[i], nodes, elapsed);
+        }
+        return lines;
+    }
+    
+    private int[] rootPv(int move) {
+        int length = Math.max(pvLength[1], 1);
+        int[] line = new int[length];
+        line[0] = move;
+        System.arraycopy(pv[1], 1, line, 1, length - 1);
+        return line;
+    }
+    
+    // Ordena a raiz pela pontuação da última iteração (ordenação estável)
+    private void sortRoot() {
+        for (int i = 1; i < rootMoves.length; i++) {
+            int move = rootMoves[i];
+            int score = rootScores[i];
+            int j = i - 1;
+            while (j >= 0 && rootScores[j] < score) {
+                rootMoves[j + 1] = rootMoves[j];
+                rootScores[j + 1] = rootScores[j];
+                j--;
+            }
+            rootMoves[j + 1] = move;
+            rootScores[j + 1] = score;
+        }
+    }
+    
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (shouldStop()) {
+            return 0;
+        }
+        long hash = match.getPositionHash();
+        if (match.getHalfmoveClock() >= 100 || isRepetition(hash)) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return evaluator.evaluate(match.getSnapshot());
+        }
+        boolean inCheck = match.getCheck();
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        
+        int slot = (int) hash & ttMask;
+        int ttMove = 0;
+        if (ttKeys[slot] == hash) {
+            long data = ttData[slot];
+            ttMove = (int) (data & 0xFFFF);
+            if ((int) ((data >>> 32) & 0xFF) >= depth) {
+                int score = fromTable((short) (data >>> 16), ply);
+                int flag = (int) (data >>> 40) & 3;
+                if (flag == EXACT || (flag == LOWER && score >= beta) || (flag == UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        
+        int[] moves = match.legalMoves();
+        if (moves.length == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        orderMoves(moves, ttMove, ply, match.getSnapshot());
+        
+        int originalAlpha = alpha;
+        int best = -INFINITE;
+        int bestMove = 0;
+        pushHash(hash);
+        try {
+            for (int move : moves) {
+                match.applyMove(move);
+                int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+                match.takeBack();
+                if (stopped) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    bestMove = move;
+                    if (score > alpha) {
+                        alpha = score;
+                        updatePv(ply, move);
+                        if (alpha >= beta) {
+                            rememberCutoff(move, depth, ply);
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            hashCount--;
+        }
+        
+        int flag = best <= originalAlpha ? UPPER : best >= beta ? LOWER : EXACT;
+        ttKeys[slot] = hash;
+        ttData[slot] = (bestMove & 0xFFFFL) | ((toTable(best, ply) & 0xFFFFL) << 16)
+                       | ((long) Math.min(depth, 255) << 32) | ((long) flag << 40);
+        return best;
+    }
+    
+    // Só capturas e promoções a Dama, com avaliação estática como piso ("stand pat").
+    // Mates e afogamentos não são detectados aqui, apenas em negamax.
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (shouldStop()) {
+            return 0;
+        }
+        PositionSnapshot position = match.getSnapshot();
+        int standPat = evaluator.evaluate(position);
+        if (standPat >= beta || ply >= MAX_PLY) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+        int[] moves = match.captureMoves();
+        int count = 0;
+        for (int move : moves) {
+            // Subpromoções não valem a pena aqui
+            if (ChessMove.promotion(move) == ChessMove.NO_PROMOTION || ChessMove.promotion(move) == ChessMove.QUEEN) {
+                moves[count++] = move;
+            }
+        }
+        moves = Arrays.copyOf(moves, count);
+        orderMoves(moves, 0, ply, position);
+        for (int move : moves) {
+            match.applyMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            match.takeBack();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+            }
+        }
+        return alpha;
+    }
+    
+    private boolean shouldStop() {
+        if ((++nodes & 1023) == 0 && timed && System.nanoTime() - deadline > 0) {
+            stopped = true;
+        }
+        return stopped;
+    }
+    
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = Math.max(pvLength[ply + 1], ply + 1);
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - ply - 1);
+        pvLength[ply] = length;
+    }
+    
+    private void rememberCutoff(int move, int depth, int ply) {
+        if (match.getSnapshot().pieceCode(ChessMove.target(move)) != 0) {
+            return;
+        }
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int index = ChessMove.source(move) * 64 + ChessMove.target(move);
+        history[index] += depth * depth;
+        if (history[index] > 1 << 18) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+    
+    // Lance da tabela, capturas (MVV-LVA) e promoções, killers e por fim histórico
+    private void orderMoves(int[] moves, int ttMove, int ply, PositionSnapshot position) {
+        int[] keys = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            int move = moves[i];
+            int source = ChessMove.source(move);
+            int target = ChessMove.target(move);
+            int victim = position.pieceCode(target);
+            if (move == ttMove) {
+                keys[i] = 1 << 30;
+            } else if (victim != 0 || ChessMove.promotion(move) == ChessMove.QUEEN) {
+                int gain = evaluator.pieceValue(victim) + (ChessMove.promotion(move) == ChessMove.QUEEN ? 800 : 0);
+                keys[i] = (1 << 24) + gain * 16 - evaluator.pieceValue(position.pieceCode(source)) / 16;
+            } else if (move == killers[ply][0]) {
+                keys[i] = (1 << 20) + 1;
+            } else if (move == killers[ply][1]) {
+                keys[i] = 1 << 20;
+            } else {
+                keys[i] = history[source * 64 + target];
+            }
+        }
+        for (int i = 1; i < moves.length; i++) {
+            int move = moves[i];
+            int key = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < key) {
+                moves[j + 1] = moves[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            keys[j + 1] = key;
+        }
+    }
+    
+    private boolean isRepetition(long hash) {
+        int limit = Math.max(0, hashCount - match.getHalfmoveClock());
+        for (int i = hashCount - 2; i >= limit; i -= 2) {
+            if (hashes[i] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void pushHash(long hash) {
+        if (hashCount == hashes.length) {
+            hashes = Arrays.copyOf(hashes, hashCount * 2);
+        }
+        hashes[hashCount++] = hash;
+    }
+    
+    // Mates são guardados relativos ao nó, para valerem em qualquer ply
+    private static int toTable(int score, int ply) {
+        if (score > MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score < -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+    
+    private static int fromTable(int score, int ply) {
+        if (score > MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score < -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,68 @@
+package chesslayer.engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Soma SIMD de um bloco transposto: cada faixa do vetor é uma posição. Para cada casa, o código da
+// peça sai do nibble por deslocamento e máscara e escolhe o valor nas 16 entradas da casa com uma
+// permutação (selectFrom). Com 16 faixas (512 bits) basta uma permutação; com menos, a tabela da
+// casa é dividida em partes do tamanho do vetor, combinadas por máscara; abaixo de 8 faixas as
+// permutações custam mais que o laço escalar e o núcleo recusa ser criado.
+// Só é carregada por BatchEvaluator quando o módulo jdk.incubator.vector está presente
+final class VectorBatchKernel implements BatchEvaluator.Kernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final int PARTS = Math.max(1, BatchEvaluator.CODES / LANES);
+    private static final int PART_SHIFT = Integer.numberOfTrailingZeros(LANES);
+
+    VectorBatchKernel() {
+        if (LANES < 8) {
+            throw new IllegalStateException("Vetores de " + LANES + " ints não compensam");
+        }
+    }
+
+    @Override
+    public void evaluate(int[] lookup, int[] block, int count, int[] scores, int scoreOffset) {
+        int i = 0;
+        for (; i <= count - LANES; i += LANES) {
+            IntVector sum = IntVector.zero(SPECIES);
+            for (int k = 0; k < PackedPosition.INTS; k++) {
+                IntVector words = IntVector.fromArray(SPECIES, block, k * BatchEvaluator.BLOCK + i);
+                for (int j = 0; j < 8; j++) {
+                    IntVector codes = words.lanewise(VectorOperators.LSHR, j * 4).and(15);
+                    sum = sum.add(select(codes, lookup, (k * 8 + j) * BatchEvaluator.CODES));
+                }
+            }
+            sum.intoArray(scores, scoreOffset + i);
+        }
+        // Resto do bloco, menor que um vetor
+        for (; i < count; i++) {
+            int score = 0;
+            for (int k = 0; k < PackedPosition.INTS; k++) {
+                int word = block[k * BatchEvaluator.BLOCK + i];
+                for (int j = 0; j < 8; j++) {
+                    score += lookup[(k * 8 + j) * BatchEvaluator.CODES + ((word >>> (j * 4)) & 15)];
+                }
+            }
+            scores[scoreOffset + i] = score;
+        }
+    }
+
+    // lookup[offset + código] para cada faixa
+    private static IntVector select(IntVector codes, int[] lookup, int offset) {
+        if (PARTS == 1) {
+            return codes.selectFrom(IntVector.fromArray(SPECIES, lookup, offset));
+        }
+        IntVector low = codes.and(LANES - 1);
+        IntVector part = codes.lanewise(VectorOperators.LSHR, PART_SHIFT);
+        IntVector values = low.selectFrom(IntVector.fromArray(SPECIES, lookup, offset));
+        for (int p = 1; p < PARTS; p++) {
+            VectorMask<Integer> mask = part.eq(p);
+            values = values.blend(low.selectFrom(IntVector.fromArray(SPECIES, lookup, offset + p * LANES)), mask);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,56 @@
+package chesslayer.pieces;
+
+import boardlayer.Board;
+import boardlayer.Position;
+import chesslayer.ChessPiece;
+import chesslayer.Color;
+
+// Arcebispo (Capablanca): move-se como bispo ou como cavalo
+public class Archbishop extends ChessPiece {
+    
+    private static final int[][] DIAGONALS = { { -1, -1 }, { -1, 1 }, { 1, 1 }, { 1, -1 } };
+    private static final int[][] JUMPS = { { -2, -1 }, { -2, 1 }, { -1, -2 }, { -1, 2 }, { 1, -2 }, { 1, 2 }, { 2, -1 }, { 2, 1 } };
+    
+    public Archbishop(Board board, Color color) {
+        super(board, color);
+    }
+    
+    @Override
+    public String toString() {
+        return "A";
+    }
+    
+    private boolean canMove(Position position) {
+        ChessPiece p = (ChessPiece) getBoard().piece(position);
+        return p == null || p.getColor() != getColor();
+    }
+    
+    @Override
+    public boolean[][] possibleMoves() {
+        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
+        
+        Position p = new Position(0, 0);
+        
+        // Diagonais, como o bispo
+        for (int[] d : DIAGONALS) {
+            p.setValues(position.getRow() + d[0], position.getColumn() + d[1]);
+            while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
+                mat[p.getRow()][p.getColumn()] = true;
+                p.setValues(p.getRow() + d[0], p.getColumn() + d[1]);
+            }
+            if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
+                mat[p.getRow()][p.getColumn()] = true;
+            }
+        }
+        
+        // Saltos em L, como o cavalo
+        for (int[] j : JUMPS) {
+            p.setValues(position.getRow() + j[0], position.getColumn() + j[1]);
+            if (getBoard().positionExists(p) && canMove(p)) {
+                mat[p.getRow()][p.getColumn()] = true;
+            }
+        }
+        
+        return mat;
+    }
+}
@@ -31,6 +31,21 @@ public class King extends ChessPiece {
         return p != null && p instanceof Rook && p.getColor() == getColor() && p.getMoveCount() == 0;
     }
     
+    // Torre do canto sem ter se movido, com as casas entre ela e o rei vazias; o rei precisa andar
+    // pelo menos duas casas até o destino do roque
+    private boolean canCastle(int rookColumn, int kingColumn) {
+        int step = rookColumn > position.getColumn() ? 1 : -1;
+        if ((kingColumn - position.getColumn()) * step < 2 || !testRookCastling(new Position(position.getRow(), rookColumn))) {
+            return false;
+        }
+        for (int column = position.getColumn() + step; column != rookColumn; column += step) {
+            if (getBoard().piece(position.getRow(), column) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     @Override
     public boolean[][] possibleMoves() {
         boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
@@ -85,26 +100,17 @@ public class King extends ChessPiece {
             mat[p.getRow()][p.getColumn()] = true;
         }
         
-        // Roque (Castling)
+        // Roque (Castling): o rei vai para a penúltima coluna (pequeno) ou para a terceira (grande),
+        // g/c no 8x8 e i/c no 10x8, e a torre do canto salta para o lado dele
         if (getMoveCount() == 0 && !chessMatch.getCheck()) {
+            int columns = getBoard().getColumns();
             // Roque pequeno (lado do rei)
-            Position posT1 = new Position(position.getRow(), position.getColumn() + 3);
-            if (testRookCastling(posT1)) {
-                Position p1 = new Position(position.getRow(), position.getColumn() + 1);
-                Position p2 = new Position(position.getRow(), position.getColumn() + 2);
-                if (getBoard().piece(p1) == null && getBoard().piece(p2) == null) {
-                    mat[position.getRow()][position.getColumn() + 2] = true;
-                }
+            if (canCastle(columns - 1, columns - 2)) {
+                mat[position.getRow()][columns - 2] = true;
             }
             // Roque grande (lado da rainha)
-            Position posT2 = new Position(position.getRow(), position.getColumn() - 4);
-            if (testRookCastling(posT2)) {
-                Position p1 = new Position(position.getRow(), position.getColumn() - 1);
-                Position p2 = new Position(position.getRow(), position.getColumn() - 2);
-                Position p3 = new Position(position.getRow(), position.getColumn() - 3);
-                if (getBoard().piece(p1) == null && getBoard().piece(p2) == null && getBoard().piece(p3) == null) {
-                    mat[position.getRow()][position.getColumn() - 2] = true;
-                }
+            if (canCastle(0, 2)) {
+                mat[position.getRow()][2] = true;
             }
         }
         
@@ -49,7 +49,7 @@ public class Pawn extends ChessPiece {
                 mat[p.getRow()][p.getColumn()] = true;
             }
             
-            // En Passant (brancas)
+            // En Passant (brancas): o peão preto que avançou duas casas parou na linha 3
             if (position.getRow() == 3) {
                 Position left = new Position(position.getRow(), position.getColumn() - 1);
                 if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()) {
@@ -83,8 +83,8 @@ public class Pawn extends ChessPiece {
                 mat[p.getRow()][p.getColumn()] = true;
             }
             
-            // En Passant (pretas)
-            if (position.getRow() == 4) {
+            // En Passant (pretas): o peão branco que avançou duas casas parou na quarta fileira
+            if (position.getRow() == getBoard().getRows() - 4) {
                 Position left = new Position(position.getRow(), position.getColumn() - 1);
                 if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()) {
                     mat[left.getRow() + 1][left.getColumn()] = true;
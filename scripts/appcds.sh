@@ -0,0 +1,33 @@
+#!/bin/sh
+# Modo de inicialização rápida: compila, garante o recurso de tabelas, gera o arquivo AppCDS
+# (JDK 13+) a partir de StartupProbe e compara o tempo até o primeiro lance legal
+set -e
+cd "$(dirname "$0")/.."
+OUT=out
+JAR="$OUT/xadrez.jar"
+JSA="$OUT/xadrez.jsa"
+
+rm -rf "$OUT"
+mkdir -p "$OUT/classes"
+# O núcleo vetorial de BatchEvaluator usa o módulo incubado (só é carregado se presente)
+javac -encoding UTF-8 --add-modules jdk.incubator.vector -d "$OUT/classes" $(find application boardlayer chesslayer -name '*.java')
+if [ ! -f chesslayer/tables.bin ]; then
+    java -cp "$OUT/classes" chesslayer.PrecomputedTables chesslayer/tables.bin
+fi
+cp chesslayer/tables.bin "$OUT/classes/chesslayer/"
+# Pesos ajustados pelo TexelTuner, se houver
+if [ -f chesslayer/engine/weights.txt ]; then
+    cp chesslayer/engine/weights.txt "$OUT/classes/chesslayer/engine/"
+fi
+# O CDS só arquiva classes vindas de JAR, não de diretórios
+jar cf "$JAR" -C "$OUT/classes" .
+
+# O arquivo só vale para o mesmo classpath e a mesma JVM usados aqui
+java -XX:ArchiveClassesAtExit="$JSA" -cp "$JAR" application.StartupProbe > /dev/null
+
+echo "== sem AppCDS"
+java -cp "$JAR" application.StartupProbe
+echo "== com AppCDS"
+java -XX:SharedArchiveFile="$JSA" -cp "$JAR" application.StartupProbe
+echo
+echo "Para jogar: java -XX:SharedArchiveFile=$JSA -XX:TieredStopAtLevel=1 -cp $JAR application.Program"
@@ -0,0 +1,25 @@
+#!/bin/sh
+# Análise distribuída no localhost: compila, sobe o coordenador e WORKERS workers em processos
+# separados e espera o fim. Os argumentos vão para o coordenador:
+#   scripts/cluster-local.sh <saida.tsv> <arquivo>... [-depth N] [-ms N] [-lease ms]
+# Variáveis: WORKERS (padrão 3), THREADS por worker (padrão 1), PORT (padrão 7070)
+set -e
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+CLASSES="$ROOT/out/classes"
+WORKERS="${WORKERS:-3}"
+THREADS="${THREADS:-1}"
+PORT="${PORT:-7070}"
+
+mkdir -p "$CLASSES"
+javac -encoding UTF-8 --add-modules jdk.incubator.vector -d "$CLASSES" $(find "$ROOT/application" "$ROOT/boardlayer" "$ROOT/chesslayer" -name '*.java')
+cp "$ROOT/chesslayer/tables.bin" "$CLASSES/chesslayer/"
+
+java -cp "$CLASSES" application.cluster.AnalysisCoordinator "$@" -port "$PORT" &
+COORDINATOR=$!
+i=1
+while [ "$i" -le "$WORKERS" ]; do
+    java -cp "$CLASSES" application.cluster.AnalysisWorker "localhost:$PORT" -threads "$THREADS" -name "w$i" &
+    i=$((i + 1))
+done
+wait "$COORDINATOR"
+wait